@@ -1,6 +1,7 @@
 package com.zzs.framework.autoconfigure.cache;
 
 import com.zzs.framework.core.cache.coroutine.RedisCacheBuilderFactory;
+import com.zzs.framework.core.lock.RedisLockFactory;
 import com.zzs.framework.starter.model.cache.coroutine.CoroutineCacheModel;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.context.annotation.Bean;
@@ -20,4 +21,11 @@ public class CoroutineCacheAutoConfigure {
     String prefix = cacheProperties.formattedPrefix();
     return new RedisCacheBuilderFactory(prefix, redisTemplate);
   }
+
+  @Bean("coroutineRedisLockFactory")
+  public RedisLockFactory redisLockFactory(@Nonnull CacheProperties cacheProperties,
+                                           @Nonnull ReactiveStringRedisTemplate redisTemplate) {
+    String prefix = cacheProperties.formattedPrefix() + "redis_lock:";
+    return new RedisLockFactory(redisTemplate, prefix);
+  }
 }
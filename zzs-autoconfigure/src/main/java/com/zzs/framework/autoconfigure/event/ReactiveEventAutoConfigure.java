@@ -3,13 +3,14 @@ package com.zzs.framework.autoconfigure.event;
 import com.rabbitmq.client.Address;
 import com.rabbitmq.client.ConnectionFactory;
 import com.zzs.framework.autoconfigure.cache.CacheProperties;
+import com.zzs.framework.autoconfigure.event.properties.EventIdempotentProperties;
 import com.zzs.framework.autoconfigure.event.properties.EventProperties;
 import com.zzs.framework.autoconfigure.event.properties.EventRabbitProperties;
+import com.zzs.framework.autoconfigure.event.properties.EventRetryProperties;
 import com.zzs.framework.autoconfigure.event.properties.SpringRabbitProperties;
 import com.zzs.framework.core.event.ReactiveEventPublisher;
 import com.zzs.framework.core.event.ReactiveTransactionalEventPublisher;
-import com.zzs.framework.core.event.coroutine.EventListenerManager;
-import com.zzs.framework.core.event.coroutine.RabbitEventListenerManager;
+import com.zzs.framework.core.event.coroutine.*;
 import com.zzs.framework.core.event.impl.ReactiveMongoTemplateTransactionalEventPublisher;
 import com.zzs.framework.core.event.impl.ReactiveRabbitEventPublisher;
 import com.zzs.framework.starter.model.event.reactive.ReactiveEventModel;
@@ -21,6 +22,7 @@ import reactor.core.scheduler.Schedulers;
 import reactor.rabbitmq.*;
 
 import javax.annotation.Nonnull;
+import java.time.Duration;
 
 /**
  * @author 宋志宗 on 2022/8/13
@@ -87,7 +89,30 @@ public class ReactiveEventAutoConfigure {
     boolean temporary = rabbit.isTemporary();
     String queuePrefix = rabbit.getQueuePrefix();
     String cachePrefix = cacheProperties.formattedPrefix();
+    EventRetryProperties retry = eventProperties.getRetry();
+    EventRetryPolicy retryPolicy = null;
+    if (retry.isEnabled()) {
+      retryPolicy = new EventRetryPolicy(retry.getMaxAttempts(), retry.getDelays());
+    }
+    EventIdempotentStore idempotentStore = idempotentStore(eventProperties.getIdempotent(), redisTemplate);
     return new RabbitEventListenerManager(
-      exchange, temporary, queuePrefix, cachePrefix, sender, receiver, redisTemplate);
+      exchange, temporary, queuePrefix, cachePrefix, sender, receiver, redisTemplate,
+      rabbit.getPrefetchCount(), rabbit.getConsumers(),
+      rabbit.getBatchSize(), rabbit.getBatchTimeout(), retryPolicy, idempotentStore);
+  }
+
+  @Nonnull
+  private static EventIdempotentStore idempotentStore(@Nonnull EventIdempotentProperties properties,
+                                                      @Nonnull ReactiveStringRedisTemplate redisTemplate) {
+    Duration timeout = properties.getTimeout();
+    return switch (properties.getType()) {
+      case none -> new NoneEventIdempotentStore();
+      case local -> new LocalEventIdempotentStore(properties.getLocalMaxSize(), timeout);
+      case redis -> new RedisEventIdempotentStore(redisTemplate, timeout);
+      case local_redis -> new TwoTierEventIdempotentStore(
+        new LocalEventIdempotentStore(properties.getLocalMaxSize(), timeout),
+        new RedisEventIdempotentStore(redisTemplate, timeout)
+      );
+    };
   }
 }
@@ -7,9 +7,36 @@ import java.time.Duration;
  * @author 宋志宗 on 2022/8/13
  */
 public class EventIdempotentProperties {
+  /** 幂等存储类型 */
+  @Nonnull
+  private Type type = Type.redis;
+
+  /** 已处理事件的保留时间, 超过后重复投递的事件会被再次处理 */
   @Nonnull
   private Duration timeout = Duration.ofHours(1);
 
+  /** 本地幂等存储最多记录的事件数量 */
+  private long localMaxSize = 100_000;
+
+  public enum Type {
+    /** 不做幂等检查 */
+    none,
+    /** 仅本地缓存, 只能识别重新投递到当前节点的事件 */
+    local,
+    /** redis */
+    redis,
+    /** 本地缓存 + redis, 本地未记录的事件再通过redis判断 */
+    local_redis,
+  }
+
+  @Nonnull
+  public Type getType() {
+    return type;
+  }
+
+  public void setType(@Nonnull Type type) {
+    this.type = type;
+  }
 
   @Nonnull
   public Duration getTimeout() {
@@ -19,4 +46,12 @@ public class EventIdempotentProperties {
   public void setTimeout(@Nonnull Duration timeout) {
     this.timeout = timeout;
   }
+
+  public long getLocalMaxSize() {
+    return localMaxSize;
+  }
+
+  public void setLocalMaxSize(long localMaxSize) {
+    this.localMaxSize = localMaxSize;
+  }
 }
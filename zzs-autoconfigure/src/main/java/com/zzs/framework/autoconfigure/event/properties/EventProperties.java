@@ -23,6 +23,10 @@ public class EventProperties {
   @NestedConfigurationProperty
   private EventIdempotentProperties idempotent = new EventIdempotentProperties();
 
+  @Nonnull
+  @NestedConfigurationProperty
+  private EventRetryProperties retry = new EventRetryProperties();
+
   public enum Type {
     /** 同步 */
     block,
@@ -56,4 +60,13 @@ public class EventProperties {
   public void setIdempotent(@Nonnull EventIdempotentProperties idempotent) {
     this.idempotent = idempotent;
   }
+
+  @Nonnull
+  public EventRetryProperties getRetry() {
+    return retry;
+  }
+
+  public void setRetry(@Nonnull EventRetryProperties retry) {
+    this.retry = retry;
+  }
 }
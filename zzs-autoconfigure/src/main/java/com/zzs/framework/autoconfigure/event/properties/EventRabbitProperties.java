@@ -1,5 +1,8 @@
 package com.zzs.framework.autoconfigure.event.properties;
 
+import javax.annotation.Nonnull;
+import java.time.Duration;
+
 /**
  * @author 宋志宗 on 2022/8/13
  */
@@ -14,12 +17,19 @@ public class EventRabbitProperties {
   /** 启用此配置则为监听器创建随机名称的队列, 并在程序关闭时删除队列 */
   private boolean temporary = false;
 
-  /** 预取消息数 */
+  /** 每个监听器的预取消息数(QoS), 小于等于0时取消费者数的2倍 */
   private int prefetchCount = 0;
 
-  /** 消费者数 */
+  /** 每个监听器同时处理的最大消息数, 有序监听时同时也是分区数 */
   private int consumers = 16;
 
+  /** 大于1时开启批量消费: 每批消息一次完成去重检查, 并通过一次 multiple ack 确认 */
+  private int batchSize = 0;
+
+  /** 批量消费时凑满一批的最长等待时间 */
+  @Nonnull
+  private Duration batchTimeout = Duration.ofMillis(10);
+
   public String getExchange() {
     return exchange;
   }
@@ -59,4 +69,21 @@ public class EventRabbitProperties {
   public void setConsumers(int consumers) {
     this.consumers = consumers;
   }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  @Nonnull
+  public Duration getBatchTimeout() {
+    return batchTimeout;
+  }
+
+  public void setBatchTimeout(@Nonnull Duration batchTimeout) {
+    this.batchTimeout = batchTimeout;
+  }
 }
@@ -0,0 +1,50 @@
+package com.zzs.framework.autoconfigure.event.properties;
+
+import javax.annotation.Nonnull;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 事件处理失败后的重试配置
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+public class EventRetryProperties {
+
+  /** 启用后失败的消息转发到延迟重试队列, 不再在消费者中等待后重新入队 */
+  private boolean enabled = false;
+
+  /** 最大处理次数, 包含首次处理, 达到后转发到死信队列 */
+  private int maxAttempts = 5;
+
+  /** 各次重试的延迟时间, 重试次数超出时使用最后一个值 */
+  @Nonnull
+  private List<Duration> delays = List.of(
+    Duration.ofSeconds(1), Duration.ofSeconds(10), Duration.ofMinutes(1), Duration.ofMinutes(10)
+  );
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  public void setMaxAttempts(int maxAttempts) {
+    this.maxAttempts = maxAttempts;
+  }
+
+  @Nonnull
+  public List<Duration> getDelays() {
+    return delays;
+  }
+
+  public void setDelays(@Nonnull List<Duration> delays) {
+    this.delays = delays;
+  }
+}
@@ -1,6 +1,8 @@
 package com.zzs.framework.core;
 
+import com.zzs.framework.core.cache.serialize.CborValueSerializer;
 import com.zzs.framework.core.cache.serialize.JsonValueSerializer;
+import com.zzs.framework.core.cache.serialize.SmileValueSerializer;
 import com.zzs.framework.core.cache.serialize.StringKeySerializer;
 import com.zzs.framework.core.cache.serialize.StringValueSerializer;
 import com.zzs.framework.core.event.BaseEvent;
@@ -27,6 +29,8 @@ import org.springframework.nativex.type.NativeConfiguration;
 @NativeHint(
   types = {
     @TypeHint(types = JsonValueSerializer.class, access = {TypeAccess.PUBLIC_FIELDS, TypeAccess.DECLARED_FIELDS, TypeAccess.PUBLIC_CONSTRUCTORS, TypeAccess.DECLARED_CONSTRUCTORS, TypeAccess.PUBLIC_METHODS, TypeAccess.DECLARED_METHODS}),
+    @TypeHint(types = SmileValueSerializer.class, access = {TypeAccess.PUBLIC_FIELDS, TypeAccess.DECLARED_FIELDS, TypeAccess.PUBLIC_CONSTRUCTORS, TypeAccess.DECLARED_CONSTRUCTORS, TypeAccess.PUBLIC_METHODS, TypeAccess.DECLARED_METHODS}),
+    @TypeHint(types = CborValueSerializer.class, access = {TypeAccess.PUBLIC_FIELDS, TypeAccess.DECLARED_FIELDS, TypeAccess.PUBLIC_CONSTRUCTORS, TypeAccess.DECLARED_CONSTRUCTORS, TypeAccess.PUBLIC_METHODS, TypeAccess.DECLARED_METHODS}),
     @TypeHint(types = StringKeySerializer.class, access = {TypeAccess.PUBLIC_FIELDS, TypeAccess.DECLARED_FIELDS, TypeAccess.PUBLIC_CONSTRUCTORS, TypeAccess.DECLARED_CONSTRUCTORS, TypeAccess.PUBLIC_METHODS, TypeAccess.DECLARED_METHODS}),
     @TypeHint(types = StringValueSerializer.class, access = {TypeAccess.PUBLIC_FIELDS, TypeAccess.DECLARED_FIELDS, TypeAccess.PUBLIC_CONSTRUCTORS, TypeAccess.DECLARED_CONSTRUCTORS, TypeAccess.PUBLIC_METHODS, TypeAccess.DECLARED_METHODS}),
     @TypeHint(types = MongoEventLock.class, access = {TypeAccess.PUBLIC_FIELDS, TypeAccess.DECLARED_FIELDS, TypeAccess.PUBLIC_CONSTRUCTORS, TypeAccess.DECLARED_CONSTRUCTORS, TypeAccess.PUBLIC_METHODS, TypeAccess.DECLARED_METHODS}),
@@ -0,0 +1,72 @@
+package com.zzs.framework.core.cache.compress;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 基于JDK Deflater的压缩算法, 无需额外依赖
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+public class DeflateValueCompressor implements ValueCompressor {
+  public static final byte ID = 1;
+  private static final DeflateValueCompressor INSTANCE = new DeflateValueCompressor();
+
+  private DeflateValueCompressor() {
+  }
+
+  @Nonnull
+  public static DeflateValueCompressor instance() {
+    return INSTANCE;
+  }
+
+  @Override
+  public byte id() {
+    return ID;
+  }
+
+  @Nonnull
+  @Override
+  public byte[] compress(@Nonnull byte[] value) {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(value);
+      deflater.finish();
+      ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(value.length / 2, 64));
+      byte[] buffer = new byte[8192];
+      while (!deflater.finished()) {
+        int count = deflater.deflate(buffer);
+        output.write(buffer, 0, count);
+      }
+      return output.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  @Nonnull
+  @Override
+  public byte[] decompress(@Nonnull byte[] value, int offset, int length) {
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(value, offset, length);
+      ByteArrayOutputStream output = new ByteArrayOutputStream(length * 4);
+      byte[] buffer = new byte[8192];
+      while (!inflater.finished()) {
+        int count = inflater.inflate(buffer);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IllegalStateException("压缩数据不完整");
+        }
+        output.write(buffer, 0, count);
+      }
+      return output.toByteArray();
+    } catch (DataFormatException e) {
+      throw new IllegalStateException("解压缓存数据失败", e);
+    } finally {
+      inflater.end();
+    }
+  }
+}
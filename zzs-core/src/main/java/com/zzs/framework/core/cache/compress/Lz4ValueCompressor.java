@@ -0,0 +1,78 @@
+package com.zzs.framework.core.cache.compress;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import javax.annotation.Nonnull;
+
+/**
+ * LZ4压缩算法, 需要引入 lz4-java.
+ * 压缩数据的前4个字节为原始数据长度
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+public class Lz4ValueCompressor implements ValueCompressor {
+  public static final byte ID = 2;
+  private static volatile Lz4ValueCompressor instance = null;
+  private final LZ4Compressor compressor;
+  private final LZ4FastDecompressor decompressor;
+
+  private Lz4ValueCompressor() {
+    LZ4Factory factory = LZ4Factory.fastestInstance();
+    this.compressor = factory.fastCompressor();
+    this.decompressor = factory.fastDecompressor();
+  }
+
+  @Nonnull
+  public static Lz4ValueCompressor instance() {
+    if (instance == null) {
+      synchronized (Lz4ValueCompressor.class) {
+        if (instance == null) {
+          instance = new Lz4ValueCompressor();
+        }
+      }
+    }
+    return instance;
+  }
+
+  @Override
+  public byte id() {
+    return ID;
+  }
+
+  @Nonnull
+  @Override
+  public byte[] compress(@Nonnull byte[] value) {
+    int maxLength = compressor.maxCompressedLength(value.length);
+    byte[] output = new byte[maxLength + 4];
+    writeInt(output, value.length);
+    int length = compressor.compress(value, 0, value.length, output, 4, maxLength);
+    byte[] result = new byte[length + 4];
+    System.arraycopy(output, 0, result, 0, result.length);
+    return result;
+  }
+
+  @Nonnull
+  @Override
+  public byte[] decompress(@Nonnull byte[] value, int offset, int length) {
+    int originalLength = readInt(value, offset);
+    byte[] output = new byte[originalLength];
+    decompressor.decompress(value, offset + 4, output, 0, originalLength);
+    return output;
+  }
+
+  private static void writeInt(@Nonnull byte[] bytes, int value) {
+    bytes[0] = (byte) (value >>> 24);
+    bytes[1] = (byte) (value >>> 16);
+    bytes[2] = (byte) (value >>> 8);
+    bytes[3] = (byte) value;
+  }
+
+  private static int readInt(@Nonnull byte[] bytes, int offset) {
+    return ((bytes[offset] & 0xFF) << 24)
+      | ((bytes[offset + 1] & 0xFF) << 16)
+      | ((bytes[offset + 2] & 0xFF) << 8)
+      | (bytes[offset + 3] & 0xFF);
+  }
+}
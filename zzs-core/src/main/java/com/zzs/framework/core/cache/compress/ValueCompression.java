@@ -0,0 +1,90 @@
+package com.zzs.framework.core.cache.compress;
+
+import javax.annotation.Nonnull;
+
+/**
+ * 缓存value的压缩格式: 3字节魔数 + 1字节算法标识 + 压缩数据.
+ * <p>
+ * 魔数以 0xC1 开头, 该字节不会出现在合法的UTF-8文本中, 因此压缩与未压缩的数据可以共存,
+ * 读取时根据头部中的算法标识选择解压算法, 与当前配置的压缩算法无关.
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+public final class ValueCompression {
+  private static final byte[] MAGIC = {(byte) 0xC1, (byte) 0xCA, (byte) 0x7E};
+  private static final int HEADER_LENGTH = MAGIC.length + 1;
+
+  @Nonnull
+  private final ValueCompressor compressor;
+  private final int threshold;
+
+  /**
+   * @param compressor 压缩算法
+   * @param threshold  序列化后的长度达到此阈值才进行压缩
+   */
+  public ValueCompression(@Nonnull ValueCompressor compressor, int threshold) {
+    this.compressor = compressor;
+    this.threshold = threshold;
+  }
+
+  /**
+   * 按需压缩, 长度未达到阈值或压缩后没有变小时返回原始数据
+   */
+  @Nonnull
+  public byte[] compress(@Nonnull byte[] value) {
+    if (value.length < threshold) {
+      return value;
+    }
+    byte[] compressed = compressor.compress(value);
+    if (compressed.length + HEADER_LENGTH >= value.length) {
+      return value;
+    }
+    byte[] result = new byte[compressed.length + HEADER_LENGTH];
+    System.arraycopy(MAGIC, 0, result, 0, MAGIC.length);
+    result[MAGIC.length] = compressor.id();
+    System.arraycopy(compressed, 0, result, HEADER_LENGTH, compressed.length);
+    return result;
+  }
+
+  /**
+   * 判断指定区间的数据是否为压缩格式
+   */
+  public static boolean isCompressed(@Nonnull byte[] value, int offset, int length) {
+    if (length < HEADER_LENGTH) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (value[offset + i] != MAGIC[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * 解压指定区间的压缩数据, 调用前需通过 {@link #isCompressed(byte[], int, int)} 判断.
+   * 优先使用当前配置的压缩算法, 算法标识不一致时使用内置算法
+   */
+  @Nonnull
+  public byte[] decompress(@Nonnull byte[] value, int offset, int length) {
+    byte id = value[offset + MAGIC.length];
+    if (id == compressor.id()) {
+      return compressor.decompress(value, offset + HEADER_LENGTH, length - HEADER_LENGTH);
+    }
+    return decompressBuiltin(value, offset, length);
+  }
+
+  /**
+   * 使用内置算法解压指定区间的压缩数据, 调用前需通过 {@link #isCompressed(byte[], int, int)} 判断
+   */
+  @Nonnull
+  public static byte[] decompressBuiltin(@Nonnull byte[] value, int offset, int length) {
+    byte id = value[offset + MAGIC.length];
+    ValueCompressor compressor = switch (id) {
+      case DeflateValueCompressor.ID -> DeflateValueCompressor.instance();
+      case Lz4ValueCompressor.ID -> Lz4ValueCompressor.instance();
+      default -> throw new IllegalStateException("未知的缓存压缩算法: " + id);
+    };
+    return compressor.decompress(value, offset + HEADER_LENGTH, length - HEADER_LENGTH);
+  }
+}
@@ -0,0 +1,38 @@
+package com.zzs.framework.core.cache.compress;
+
+import javax.annotation.Nonnull;
+
+/**
+ * 缓存value压缩算法
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+public interface ValueCompressor {
+
+  /**
+   * 算法标识, 会写入压缩数据的头部, 读取时据此选择解压算法
+   *
+   * @return 算法标识
+   */
+  byte id();
+
+  /**
+   * 压缩
+   *
+   * @param value 原始数据
+   * @return 压缩后的数据
+   */
+  @Nonnull
+  byte[] compress(@Nonnull byte[] value);
+
+  /**
+   * 解压
+   *
+   * @param value  包含压缩数据的字节数组
+   * @param offset 起始位置
+   * @param length 长度
+   * @return 原始数据
+   */
+  @Nonnull
+  byte[] decompress(@Nonnull byte[] value, int offset, int length);
+}
@@ -0,0 +1,66 @@
+package com.zzs.framework.core.cache.serialize;
+
+import javax.annotation.Nonnull;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 二进制value序列化器
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+public interface ByteValueSerializer<V> {
+
+  /**
+   * 将字符串序列化器适配为二进制序列化器, 使用UTF-8编码
+   *
+   * @param serializer 字符串序列化器
+   * @return 二进制序列化器
+   */
+  @Nonnull
+  static <V> ByteValueSerializer<V> utf8(@Nonnull ValueSerializer<V> serializer) {
+    return new ByteValueSerializer<>() {
+      @Nonnull
+      @Override
+      public byte[] serialize(@Nonnull V value) {
+        return serializer.serialize(value).getBytes(StandardCharsets.UTF_8);
+      }
+
+      @Nonnull
+      @Override
+      public V deserialize(@Nonnull byte[] value, int offset, int length) {
+        return serializer.deserialize(new String(value, offset, length, StandardCharsets.UTF_8));
+      }
+    };
+  }
+
+  /**
+   * 序列化value
+   *
+   * @param value value
+   * @return 序列化后的value
+   */
+  @Nonnull
+  byte[] serialize(@Nonnull V value);
+
+  /**
+   * 反序列化value
+   *
+   * @param value 序列化后的value
+   * @return 原始value
+   */
+  @Nonnull
+  default V deserialize(@Nonnull byte[] value) {
+    return deserialize(value, 0, value.length);
+  }
+
+  /**
+   * 从字节数组的指定区间反序列化value
+   *
+   * @param value  包含序列化后value的字节数组
+   * @param offset 起始位置
+   * @param length 长度
+   * @return 原始value
+   */
+  @Nonnull
+  V deserialize(@Nonnull byte[] value, int offset, int length);
+}
@@ -0,0 +1,54 @@
+package com.zzs.framework.core.cache.serialize;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.zzs.framework.core.json.JsonFormatException;
+import com.zzs.framework.core.json.JsonParseException;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+
+/**
+ * 基于jackson二进制格式的value序列化器
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+@SuppressWarnings({"AlibabaAbstractClassShouldStartWithAbstractNaming"})
+public abstract class JacksonByteValueSerializer<V> extends TypeReference<V> implements ByteValueSerializer<V> {
+
+  @Nonnull
+  protected static ObjectMapper createMapper(@Nonnull JsonFactory factory) {
+    return new ObjectMapper(factory)
+      .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+      .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, true)
+      .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+      .findAndRegisterModules();
+  }
+
+  @Nonnull
+  protected abstract ObjectMapper mapper();
+
+  @Nonnull
+  @Override
+  public byte[] serialize(@Nonnull V value) {
+    try {
+      return mapper().writeValueAsBytes(value);
+    } catch (IOException e) {
+      throw new JsonFormatException(e);
+    }
+  }
+
+  @Nonnull
+  @Override
+  public V deserialize(@Nonnull byte[] value, int offset, int length) {
+    try {
+      return mapper().readValue(value, offset, length, mapper().getTypeFactory().constructType(this));
+    } catch (IOException e) {
+      throw new JsonParseException(e);
+    }
+  }
+}
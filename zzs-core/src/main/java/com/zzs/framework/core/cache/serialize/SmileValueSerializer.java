@@ -0,0 +1,22 @@
+package com.zzs.framework.core.cache.serialize;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Smile(二进制JSON)格式的value序列化器, 需要引入 jackson-dataformat-smile
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+@SuppressWarnings({"AlibabaAbstractClassShouldStartWithAbstractNaming"})
+public abstract class SmileValueSerializer<V> extends JacksonByteValueSerializer<V> {
+  private static final ObjectMapper MAPPER = createMapper(new SmileFactory());
+
+  @Nonnull
+  @Override
+  protected ObjectMapper mapper() {
+    return MAPPER;
+  }
+}
@@ -2,29 +2,31 @@ package com.zzs.framework.core.spring;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.springframework.data.redis.connection.ReactiveRedisConnection;
-import org.springframework.data.redis.connection.RedisConnection;
-import org.springframework.data.redis.connection.RedisConnectionFactory;
-import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
 import reactor.core.publisher.Mono;
 
 import javax.annotation.Nonnull;
-import java.nio.ByteBuffer;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.Objects;
+import java.util.List;
 
 /**
  * @author 宋志宗 on 2021/9/2
  */
 public final class RedisTemplateUtils {
   private static final Log log = LogFactory.getLog(RedisTemplateUtils.class);
-  private static final byte[] SCRIPT
-    = "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end"
-    .getBytes(StandardCharsets.UTF_8);
+  /** 脚本的SHA1会被缓存, 执行时优先使用EVALSHA, 连接的获取与释放由template负责 */
+  private static final RedisScript<Long> UNLOCK_SCRIPT = RedisScript.of(
+    "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+    Long.class
+  );
 
 
   public static boolean tryLock(@Nonnull StringRedisTemplate redisTemplate,
@@ -41,14 +43,8 @@ public final class RedisTemplateUtils {
 
   public static void unlock(@Nonnull StringRedisTemplate redisTemplate,
                             @Nonnull String lockKey, @Nonnull String lockValue) {
-    RedisConnectionFactory factory = redisTemplate.getConnectionFactory();
-    RedisConnection connection = Objects.requireNonNull(factory).getConnection();
-    Long eval = connection.scriptingCommands().<Long>eval(
-      SCRIPT, ReturnType.INTEGER, 1,
-      lockKey.getBytes(Charset.defaultCharset()),
-      lockValue.getBytes(Charset.defaultCharset())
-    );
-    if (eval != null && eval > 0) {
+    Long result = redisTemplate.execute(UNLOCK_SCRIPT, List.of(lockKey), lockValue);
+    if (result != null && result > 0) {
       log.debug("成功释放锁: " + lockKey);
     }
   }
@@ -56,22 +52,37 @@ public final class RedisTemplateUtils {
   @Nonnull
   public static Mono<Boolean> unlock(@Nonnull ReactiveStringRedisTemplate redisTemplate,
                                      @Nonnull String lockKey, @Nonnull String lockValue) {
-    ReactiveRedisConnection connection = redisTemplate
-      .getConnectionFactory().getReactiveConnection();
-    return connection.scriptingCommands()
-      .eval(ByteBuffer.wrap(SCRIPT), ReturnType.INTEGER, 1,
-        ByteBuffer.wrap(lockKey.getBytes(Charset.defaultCharset())),
-        ByteBuffer.wrap(lockValue.getBytes(Charset.defaultCharset())))
-      .collectList()
-      .map(list -> {
-        long i = 0;
-        for (Object o : list) {
-          if (o != null) {
-            i += (long) o;
-          }
-        }
-        return i > 0;
-      });
+    return redisTemplate.execute(UNLOCK_SCRIPT, List.of(lockKey), List.of(lockValue))
+      .next()
+      .map(result -> result > 0)
+      .defaultIfEmpty(false);
+  }
+
+  /**
+   * 创建key为字符串, value为字节数组的reactive redis template
+   *
+   * @param connectionFactory redis连接工厂
+   * @return ReactiveRedisTemplate
+   */
+  @Nonnull
+  public static ReactiveRedisTemplate<String, byte[]> byteArrayTemplate(
+    @Nonnull ReactiveRedisConnectionFactory connectionFactory) {
+    RedisSerializationContext<String, byte[]> context = RedisSerializationContext
+      .<String, byte[]>newSerializationContext(RedisSerializer.byteArray())
+      .key(StringRedisSerializer.UTF_8)
+      .hashKey(StringRedisSerializer.UTF_8)
+      .build();
+    return new ReactiveRedisTemplate<>(connectionFactory, context);
+  }
+
+  /**
+   * 连接工厂是否连接的是redis集群
+   *
+   * @param connectionFactory redis连接工厂
+   * @return 是否为集群
+   */
+  public static boolean isCluster(@Nonnull ReactiveRedisConnectionFactory connectionFactory) {
+    return connectionFactory instanceof LettuceConnectionFactory lettuce && lettuce.isClusterAware();
   }
 
   private RedisTemplateUtils() {
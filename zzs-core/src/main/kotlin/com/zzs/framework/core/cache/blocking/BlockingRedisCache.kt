@@ -0,0 +1,41 @@
+package com.zzs.framework.core.cache.blocking
+
+import java.util.function.Function
+
+/**
+ * 阻塞式的redis缓存, 与 [com.zzs.framework.core.cache.coroutine.RedisCache] 共用同一套实现,
+ * 适合在普通线程或虚拟线程中使用, 不要在事件循环线程中调用.
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+interface BlockingRedisCache<K : Any, V : Any> {
+
+  fun getIfPresent(key: K): V?
+
+  /**
+   * 批量获取缓存中已存在的值, 不存在的key不会出现在返回结果中
+   *
+   * @param keys key列表
+   * @return key -> value
+   */
+  fun getAll(keys: Iterable<K>): Map<K, V>
+
+  fun get(key: K, loader: Function<K, V?>): V?
+
+  /**
+   * 批量获取, 缓存未命中的key通过一次 [loader] 调用批量加载并写入缓存
+   *
+   * @param keys   key列表
+   * @param loader 批量加载函数, 入参为缓存未命中的key
+   * @return key -> value
+   */
+  fun getAll(keys: Iterable<K>, loader: Function<Collection<K>, Map<K, V>>): Map<K, V>
+
+  fun put(key: K, value: V)
+
+  fun putAll(map: Map<K, V>)
+
+  fun invalidate(key: K)
+
+  fun invalidateAll(keys: Iterable<K>)
+}
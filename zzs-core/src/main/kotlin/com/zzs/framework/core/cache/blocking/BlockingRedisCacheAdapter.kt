@@ -0,0 +1,40 @@
+package com.zzs.framework.core.cache.blocking
+
+import com.zzs.framework.core.cache.coroutine.RedisCache
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withContext
+import java.util.function.Function
+
+/**
+ * 将协程缓存适配为 [BlockingRedisCache], 调用线程在等待redis响应期间挂起(park).
+ *
+ * 加载函数可能由单飞(single flight)合并后在其他协程中执行, 统一切换到 [Dispatchers.IO],
+ * 避免阻塞的JDBC/HTTP调用占用 [Dispatchers.Default] 的计算线程
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+class BlockingRedisCacheAdapter<K : Any, V : Any>(
+  private val cache: RedisCache<K, V>
+) : BlockingRedisCache<K, V> {
+
+  override fun getIfPresent(key: K): V? = runBlocking { cache.getIfPresent(key) }
+
+  override fun getAll(keys: Iterable<K>): Map<K, V> = runBlocking { cache.getAll(keys) }
+
+  override fun get(key: K, loader: Function<K, V?>): V? {
+    return runBlocking { cache.get(key) { withContext(Dispatchers.IO) { loader.apply(it) } } }
+  }
+
+  override fun getAll(keys: Iterable<K>, loader: Function<Collection<K>, Map<K, V>>): Map<K, V> {
+    return runBlocking { cache.getAll(keys) { withContext(Dispatchers.IO) { loader.apply(it) } } }
+  }
+
+  override fun put(key: K, value: V) = runBlocking { cache.put(key, value) }
+
+  override fun putAll(map: Map<K, V>) = runBlocking { cache.putAll(map) }
+
+  override fun invalidate(key: K) = runBlocking { cache.invalidate(key) }
+
+  override fun invalidateAll(keys: Iterable<K>) = runBlocking { cache.invalidateAll(keys) }
+}
@@ -0,0 +1,29 @@
+package com.zzs.framework.core.cache.blocking
+
+/**
+ * 阻塞式的自动加载redis缓存, 与 [com.zzs.framework.core.cache.coroutine.RedisLoadingCache] 共用同一套实现
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+interface BlockingRedisLoadingCache<K : Any, V : Any> {
+
+  fun getIfPresent(key: K): V?
+
+  fun get(key: K): V?
+
+  /**
+   * 批量获取, 缓存未命中的key会被加载并写入缓存
+   *
+   * @param keys key列表
+   * @return key -> value, 加载结果为null的key不会出现在返回结果中
+   */
+  fun getAll(keys: Iterable<K>): Map<K, V>
+
+  fun put(key: K, value: V)
+
+  fun putAll(map: Map<K, V>)
+
+  fun invalidate(key: K)
+
+  fun invalidateAll(keys: Iterable<K>)
+}
@@ -0,0 +1,28 @@
+package com.zzs.framework.core.cache.blocking
+
+import com.zzs.framework.core.cache.coroutine.RedisLoadingCache
+import kotlinx.coroutines.runBlocking
+
+/**
+ * 将协程自动加载缓存适配为 [BlockingRedisLoadingCache], 线程模型同 [BlockingRedisCacheAdapter]
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+class BlockingRedisLoadingCacheAdapter<K : Any, V : Any>(
+  private val cache: RedisLoadingCache<K, V>
+) : BlockingRedisLoadingCache<K, V> {
+
+  override fun getIfPresent(key: K): V? = runBlocking { cache.getIfPresent(key) }
+
+  override fun get(key: K): V? = runBlocking { cache.get(key) }
+
+  override fun getAll(keys: Iterable<K>): Map<K, V> = runBlocking { cache.getAll(keys) }
+
+  override fun put(key: K, value: V) = runBlocking { cache.put(key, value) }
+
+  override fun putAll(map: Map<K, V>) = runBlocking { cache.putAll(map) }
+
+  override fun invalidate(key: K) = runBlocking { cache.invalidate(key) }
+
+  override fun invalidateAll(keys: Iterable<K>) = runBlocking { cache.invalidateAll(keys) }
+}
@@ -0,0 +1,26 @@
+package com.zzs.framework.core.cache.coroutine
+
+/**
+ * 本地缓存使用的key, 同时持有原始key和对应的redis key, 相等性仅由redis key决定.
+ *
+ * 只知道redis key时(例如收到其他节点的失效通知), 可以构造 [key] 为null的实例进行查找.
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+internal class CacheKey<K : Any>(
+  val key: K?,
+  /** 带有命名空间前缀的redis key */
+  val serialized: String
+) {
+
+  override fun equals(other: Any?): Boolean {
+    if (this === other) {
+      return true
+    }
+    return other is CacheKey<*> && serialized == other.serialized
+  }
+
+  override fun hashCode() = serialized.hashCode()
+
+  override fun toString() = serialized
+}
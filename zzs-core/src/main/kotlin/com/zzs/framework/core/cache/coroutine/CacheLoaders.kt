@@ -0,0 +1,19 @@
+package com.zzs.framework.core.cache.coroutine
+
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+
+/**
+ * 将单个key的加载函数适配为批量加载函数, 各key并发加载, 结果为null的key不会出现在返回结果中
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+internal fun <K : Any, V : Any> (suspend (K) -> V?).toBatchLoader(): suspend (Collection<K>) -> Map<K, V> {
+  val block = this
+  return { keys ->
+    coroutineScope {
+      keys.map { key -> async { key to block.invoke(key) } }.awaitAll()
+    }.mapNotNull { (key, value) -> value?.let { key to it } }.toMap()
+  }
+}
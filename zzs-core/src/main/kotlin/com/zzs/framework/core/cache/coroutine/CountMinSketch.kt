@@ -0,0 +1,61 @@
+package com.zzs.framework.core.cache.coroutine
+
+import java.util.concurrent.atomic.AtomicIntegerArray
+import kotlin.math.min
+
+/**
+ * 线程安全的Count-Min Sketch, 用固定大小的计数器数组估算key的出现次数, 估算值只会偏大不会偏小
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+internal class CountMinSketch(width: Int, private val depth: Int = 4) {
+  private val mask: Int
+  private val counters: AtomicIntegerArray
+
+  init {
+    require(width > 0) { "width must be positive" }
+    val capacity = Integer.highestOneBit(width - 1).coerceAtLeast(1) shl 1
+    mask = capacity - 1
+    counters = AtomicIntegerArray(capacity * depth)
+  }
+
+  /** 计数加一并返回加一之后的估算值 */
+  fun increment(key: String): Int {
+    val hash = spread(key.hashCode())
+    var estimate = Int.MAX_VALUE
+    for (i in 0 until depth) {
+      val index = index(hash, i)
+      estimate = min(estimate, counters.incrementAndGet(index))
+    }
+    return estimate
+  }
+
+  fun estimate(key: String): Int {
+    val hash = spread(key.hashCode())
+    var estimate = Int.MAX_VALUE
+    for (i in 0 until depth) {
+      estimate = min(estimate, counters.get(index(hash, i)))
+    }
+    return estimate
+  }
+
+  fun clear() {
+    for (i in 0 until counters.length()) {
+      counters.lazySet(i, 0)
+    }
+  }
+
+  private fun index(hash: Int, row: Int): Int {
+    var h = hash + row * -0x61c88647
+    h = h xor (h ushr 16)
+    h *= -0x7a143595
+    h = h xor (h ushr 13)
+    return row * (mask + 1) + (h and mask)
+  }
+
+  private fun spread(hash: Int): Int {
+    var h = hash * -0x3361d2af
+    h = h xor (h ushr 15)
+    return h
+  }
+}
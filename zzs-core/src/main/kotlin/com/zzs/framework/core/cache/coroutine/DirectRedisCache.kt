@@ -1,16 +1,22 @@
 package com.zzs.framework.core.cache.coroutine
 
-import com.zzs.framework.core.cache.CacheUtils
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
 import com.zzs.framework.core.cache.serialize.KeySerializer
-import com.zzs.framework.core.cache.serialize.ValueSerializer
+import com.zzs.framework.core.cache.compress.ValueCompression
+import com.zzs.framework.core.cache.serialize.ByteValueSerializer
 import com.zzs.framework.core.spring.RedisTemplateUtils
-import kotlinx.coroutines.async
-import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.*
 import kotlinx.coroutines.reactor.awaitSingleOrNull
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import org.springframework.data.redis.core.ReactiveRedisTemplate
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate
 import java.time.Duration
 import java.util.*
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.ThreadLocalRandom
+import kotlin.math.min
 
 /**
  * @author 宋志宗 on 2022/8/15
@@ -19,99 +25,594 @@ class DirectRedisCache<K : Any, V : Any>(
   redisPrefix: String,
   private val lock: Boolean,
   private val cacheNull: Boolean,
-  internal val keySerializer: KeySerializer<K>,
-  private val valueSerializer: ValueSerializer<V>,
+  keySerializer: KeySerializer<K>,
+  private val valueSerializer: ByteValueSerializer<V>,
   private val nullTimeout: Duration,
   private val lockTimeout: Duration,
+  private val lockWaitTimeout: Duration,
   private val timeoutSeconds: Long,
   private val maxTimeoutSeconds: Long?,
-  private val redisTemplate: ReactiveStringRedisTemplate
+  private val refreshAfterWrite: Duration?,
+  private val xfetchBeta: Double?,
+  hashBuckets: Int?,
+  hashSweepInterval: Duration,
+  private val loaderTimeout: Duration?,
+  private val staleIfError: Duration?,
+  private val compression: ValueCompression?,
+  private val metrics: RedisCacheMetrics?,
+  private val redisTemplate: ReactiveStringRedisTemplate,
+  private val valueTemplate: ReactiveRedisTemplate<String, ByteArray>
 ) : RedisCache<K, V> {
+  companion object {
+    private val log: Logger = LoggerFactory.getLogger(DirectRedisCache::class.java)
+
+    /** 等待其他节点释放锁时的最小轮询间隔 */
+    private const val LOCK_POLL_MIN_MILLIS = 10L
+
+    /** 等待其他节点释放锁时的最大轮询间隔 */
+    private const val LOCK_POLL_MAX_MILLIS = 200L
+  }
+
   private val uuid = UUID.randomUUID().toString().replace("-", "")
   private val timeout = Duration.ofSeconds(timeoutSeconds)
-  private val finalPrefix: String
+
+  /**
+   * 进程内合并相同key的未命中加载, 开启分布式锁时每个节点对同一个key只有一个协程竞争redis锁.
+   * 不同key之间互不等待, 加载函数中读取其他key也不会相互阻塞
+   */
+  private val singleFlight = SingleFlight<V?>()
+  private val refreshScope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+  private val refreshing: MutableSet<String> = ConcurrentHashMap.newKeySet()
+  private val keyBuilder: RedisKeyBuilder<K>
+  private val storage: RedisCacheStorage
+
+  /** 拦截不存在的key的布隆过滤器, 由 [RedisCacheBuilder.bloomFilter] 设置 */
+  internal var bloomFilter: RedisCacheBloomFilter? = null
+
+  /** 热点key的本地缓存, 由 [RedisCacheBuilder.hotKeys] 设置 */
+  internal var hotKeyCache: HotKeyCache<V>? = null
+
+  /** 加载函数的熔断器, 由 [RedisCacheBuilder.circuitBreaker] 设置 */
+  internal var circuitBreaker: LoaderCircuitBreaker? = null
+
+  /**
+   * 最近读取或写入redis的值对应的字节数, 以值的对象标识作为弱引用key,
+   * 本地缓存按默认权重淘汰时通过 [enableSizeHints] 开启, 避免计算权重时重新序列化
+   */
+  private var sizeHints: Cache<V, Int>? = null
 
   init {
-    finalPrefix = if (redisPrefix.isBlank()) {
+    val finalPrefix = if (redisPrefix.isBlank()) {
       ""
     } else if (redisPrefix.endsWith(":")) {
       redisPrefix
     } else {
       "$redisPrefix:"
     }
+    keyBuilder = RedisKeyBuilder(finalPrefix, keySerializer)
+    storage = if (hashBuckets == null) {
+      StringRedisCacheStorage(valueTemplate)
+    } else {
+      HashRedisCacheStorage(valueTemplate, finalPrefix, hashBuckets, hashSweepInterval)
+    }
   }
 
-  override suspend fun getIfPresent(key: K): V? {
-    val redisKey = redisKey(keySerializer.serialize(key))
-    val value = redisTemplate.opsForValue().get(redisKey).awaitSingleOrNull()
-    if (CacheUtils.isNull(value)) {
+  /**
+   * 生成key对应的redis key, 同时作为本地缓存、布隆过滤器以及失效广播中的key使用,
+   * 调用方应当在一次操作中只生成一次并通过 `do` 开头的方法复用
+   */
+  internal fun redisKey(key: K): String = keyBuilder.build(key)
+
+  override suspend fun getIfPresent(key: K): V? = doGetIfPresent(redisKey(key))
+
+  internal suspend fun doGetIfPresent(redisKey: String): V? {
+    if (bloomFilter?.mightContain(redisKey) == false) {
+      return null
+    }
+    getHot(redisKey)?.let { return it }
+    val value = storage.get(redisKey)
+    // 空值标记是redis中缓存的结果, 与 doGet 一致计为命中
+    if (RedisCacheEntry.isNullValue(value)) {
+      metrics?.redis(1, 0)
+      return null
+    }
+    if (isNull(value)) {
+      metrics?.redis(0, 1)
       return null
     }
-    return valueSerializer.deserialize(value!!)
+    metrics?.redis(1, 0)
+    return deserialize(value!!).also { hotKeyCache?.record(redisKey, it) }
   }
 
-  override suspend fun get(key: K, block: suspend (K) -> V?): V? {
-    val redisKey = redisKey(keySerializer.serialize(key))
-    val ops = redisTemplate.opsForValue()
-    val value = ops.get(redisKey).awaitSingleOrNull()
-    if (!CacheUtils.isNull(value)) {
-      return valueSerializer.deserialize(value!!)
+  override suspend fun getAll(keys: Iterable<K>): Map<K, V> = doGetAll(redisKeys(keys))
+
+  /** @param keys key -> redis key */
+  internal suspend fun doGetAll(keys: Map<K, String>): Map<K, V> {
+    val values = multiGet(filterKeys(keys))
+    val result = LinkedHashMap<K, V>()
+    var nullValues = 0
+    values.forEach { (key, value) ->
+      if (RedisCacheEntry.isNullValue(value)) {
+        nullValues++
+      } else if (!isNull(value)) {
+        result[key] = deserialize(value!!)
+      }
     }
-    var lockKey: String? = null
-    try {
-      if (lock) {
-        lockKey = lockKey(redisKey)
-        val tryLock = ops.setIfAbsent(lockKey, uuid, lockTimeout)
-          .awaitSingleOrNull() ?: false
-        if (!tryLock) {
-          return null
+    val hits = result.size + nullValues
+    metrics?.redis(hits, values.size - hits)
+    return result
+  }
+
+  /**
+   * 直接通过redis key批量读取, 用于本地缓存预热
+   *
+   * @param redisKeys   redis key
+   * @param concurrency 同时执行的批量读取数量
+   * @return redis key -> value, 不存在的key不会出现在返回结果中
+   */
+  internal suspend fun doGetAllByRedisKeys(redisKeys: List<String>, concurrency: Int): Map<String, V> {
+    val values = storage.multiGet(redisKeys, concurrency)
+    val result = HashMap<String, V>()
+    values.forEach { (redisKey, value) ->
+      if (!isNull(value)) {
+        result[redisKey] = deserialize(value!!)
+      }
+    }
+    return result
+  }
+
+  override suspend fun getAll(
+    keys: Iterable<K>,
+    block: suspend (Collection<K>) -> Map<K, V>
+  ): Map<K, V> = doGetAll(redisKeys(keys), block)
+
+  /** @param keys key -> redis key */
+  internal suspend fun doGetAll(
+    keys: Map<K, String>,
+    block: suspend (Collection<K>) -> Map<K, V>
+  ): Map<K, V> {
+    val filtered = filterKeys(keys)
+    val values = multiGet(filtered)
+    val result = LinkedHashMap<K, V>()
+    val misses = ArrayList<K>()
+    val stales = HashMap<K, ByteArray>()
+    values.forEach { (key, value) ->
+      if (RedisCacheEntry.isNullValue(value)) {
+        return@forEach
+      }
+      if (isNull(value)) {
+        misses.add(key)
+        if (isExpired(value)) {
+          stales[key] = value!!
         }
+      } else {
+        result[key] = deserialize(value!!)
       }
-      val invoke = block.invoke(key)
-      if (invoke != null) {
-        val serialize = valueSerializer.serialize(invoke)
+    }
+    metrics?.redis(values.size - misses.size, misses.size)
+    if (misses.isEmpty()) {
+      return result
+    }
+    val loadStart = System.currentTimeMillis()
+    val loaded = try {
+      invokeLoader { block.invoke(misses) }
+    } catch (e: Exception) {
+      // 只有全部未命中的key都存在过期值时才降级, 否则无法区分不存在的key与加载失败的key
+      if (e is CancellationException || stales.size < misses.size) {
+        throw e
+      }
+      log.warn("批量加载缓存失败, 返回过期的值: {}", e.toString())
+      metrics?.staleServed(stales.size)
+      stales.forEach { (key, value) -> result[key] = deserialize(value) }
+      return result
+    }
+    val delta = (System.currentTimeMillis() - loadStart) / misses.size
+    val entries = ArrayList<Triple<String, ByteArray, Duration>>(misses.size)
+    val loadedKeys = ArrayList<String>()
+    misses.forEach { key ->
+      val redisKey = filtered[key]!!
+      val value = loaded[key]
+      if (value != null) {
+        result[key] = value
+        loadedKeys.add(redisKey)
         val timeout = calculateTimeout()
-        ops.set(redisKey, serialize, timeout).awaitSingleOrNull()
+        entries.add(Triple(redisKey, serialize(value, timeout, delta), retention(timeout)))
       } else if (cacheNull) {
-        val nullValue = CacheUtils.NULL_VALUE
-        ops.set(redisKey, nullValue, nullTimeout).awaitSingleOrNull()
+        entries.add(Triple(redisKey, RedisCacheEntry.nullValue(), nullTimeout))
+      }
+    }
+    storage.setAll(entries)
+    bloomFilter?.addAll(loadedKeys)
+    return result
+  }
+
+  override suspend fun get(key: K, block: suspend (K) -> V?): V? = doGet(key, redisKey(key), block)
+
+  internal suspend fun doGet(key: K, redisKey: String, block: suspend (K) -> V?): V? {
+    if (bloomFilter?.mightContain(redisKey) == false) {
+      return null
+    }
+    getHot(redisKey)?.let { return it }
+    val value = storage.get(redisKey)
+    if (RedisCacheEntry.isNullValue(value)) {
+      metrics?.redis(1, 0)
+      return null
+    }
+    if (!isNull(value)) {
+      metrics?.redis(1, 0)
+      val entry = RedisCacheEntry.decode(value!!)
+      if (entry.needsRefresh() || (xfetchBeta != null && entry.needsEarlyRefresh(xfetchBeta))) {
+        refresh(key, redisKey, block)
+      }
+      return deserialize(entry).also { hotKeyCache?.record(redisKey, it) }
+    }
+    metrics?.redis(0, 1)
+    val stale = if (isExpired(value)) value else null
+    return singleFlight.execute(redisKey) {
+      if (lock) {
+        lockAndLoad(key, redisKey, block, stale)
+      } else {
+        load(key, redisKey, block, stale)
+      }
+    }?.also { bloomFilter?.addAll(listOf(redisKey)) }
+  }
+
+  /**
+   * 在分布式锁的保护下加载数据, 如果锁被其他节点持有则轮询等待其写入的结果,
+   * 在 [lockWaitTimeout] 内仍未获取到结果则返回过期的值, 没有过期的值时返回null
+   *
+   * @param stale stale-if-error模式下redis中逻辑过期的值
+   */
+  private suspend fun lockAndLoad(
+    key: K,
+    redisKey: String,
+    block: suspend (K) -> V?,
+    stale: ByteArray?
+  ): V? {
+    var staleValue = stale
+    val lockKey = lockKey(redisKey)
+    val deadline = System.nanoTime() + lockWaitTimeout.toNanos()
+    var interval = LOCK_POLL_MIN_MILLIS
+    while (true) {
+      val tryLock = redisTemplate.opsForValue()
+        .setIfAbsent(lockKey, uuid, lockTimeout).awaitSingleOrNull() ?: false
+      if (tryLock) {
+        metrics?.lockAcquired()
+        try {
+          // 获取锁之前其他节点可能已经完成了加载
+          val value = storage.get(redisKey)
+          if (RedisCacheEntry.isNullValue(value)) {
+            return null
+          }
+          if (!isNull(value)) {
+            return deserialize(value!!)
+          }
+          return load(key, redisKey, block, if (isExpired(value)) value else staleValue)
+        } finally {
+          RedisTemplateUtils.unlock(redisTemplate, lockKey, uuid).awaitSingleOrNull()
+        }
+      }
+      if (System.nanoTime() >= deadline) {
+        metrics?.lockTimeout()
+        return staleValue?.let { serveStale(redisKey, it, null) }
+      }
+      metrics?.lockContended()
+      delay(interval)
+      interval = min(interval * 2, LOCK_POLL_MAX_MILLIS)
+      val value = storage.get(redisKey)
+      if (RedisCacheEntry.isNullValue(value)) {
+        return null
+      }
+      if (!isNull(value)) {
+        return deserialize(value!!)
+      }
+      if (isExpired(value)) {
+        staleValue = value
+      }
+    }
+  }
+
+  /**
+   * 软过期后在后台重新加载数据, 当前调用者直接使用旧值.
+   * 同一个key在进程内同时只会有一个刷新任务, 启用分布式锁时未抢到锁的节点会放弃本次刷新.
+   */
+  private fun refresh(key: K, redisKey: String, block: suspend (K) -> V?) {
+    if (!refreshing.add(redisKey)) {
+      return
+    }
+    refreshScope.launch {
+      try {
+        // 本地已有协程在加载同一个key时放弃本次刷新, 不再访问redis锁
+        if (singleFlight.isRunning(redisKey)) {
+          return@launch
+        }
+        if (!lock) {
+          load(key, redisKey, block)
+          return@launch
+        }
+        val lockKey = lockKey(redisKey)
+        val tryLock = redisTemplate.opsForValue()
+          .setIfAbsent(lockKey, uuid, lockTimeout).awaitSingleOrNull() ?: false
+        if (!tryLock) {
+          return@launch
+        }
+        try {
+          load(key, redisKey, block)
+        } finally {
+          RedisTemplateUtils.unlock(redisTemplate, lockKey, uuid).awaitSingleOrNull()
+        }
+      } catch (e: Exception) {
+        log.warn("刷新缓存出现异常: {}", redisKey, e)
+      } finally {
+        refreshing.remove(redisKey)
+      }
+    }
+  }
+
+  /**
+   * 执行加载函数并写入redis
+   *
+   * @param stale 加载失败时返回的过期值, 为null时直接抛出异常
+   */
+  private suspend fun load(
+    key: K,
+    redisKey: String,
+    block: suspend (K) -> V?,
+    stale: ByteArray? = null
+  ): V? {
+    val loadStart = System.currentTimeMillis()
+    val invoke = try {
+      invokeLoader { block.invoke(key) }
+    } catch (e: Exception) {
+      if (e is CancellationException || stale == null) {
+        throw e
+      }
+      return serveStale(redisKey, stale, e)
+    }
+    if (invoke != null) {
+      val timeout = calculateTimeout()
+      val serialize = serialize(invoke, timeout, System.currentTimeMillis() - loadStart)
+      storage.set(redisKey, serialize, retention(timeout))
+    } else if (cacheNull) {
+      val nullValue = RedisCacheEntry.nullValue()
+      storage.set(redisKey, nullValue, nullTimeout)
+    }
+    return invoke
+  }
+
+  /** 执行加载函数, 依次应用熔断、超时与耗时统计 */
+  private suspend fun <T> invokeLoader(block: suspend () -> T): T {
+    val breaker = circuitBreaker
+    if (breaker != null && !breaker.tryAcquire()) {
+      metrics?.loadRejected()
+      throw RedisCacheLoadException("缓存加载已熔断")
+    }
+    var settled = false
+    try {
+      val result = if (metrics == null) {
+        withLoaderTimeout(block)
+      } else {
+        metrics.recordLoad { withLoaderTimeout(block) }
       }
-      return invoke
+      breaker?.onSuccess()
+      settled = true
+      return result
+    } catch (e: CancellationException) {
+      throw e
+    } catch (e: Exception) {
+      breaker?.onFailure()
+      settled = true
+      throw e
     } finally {
-      if (lockKey != null) {
-        RedisTemplateUtils.unlock(redisTemplate, lockKey, uuid).awaitSingleOrNull()
+      // 调用方被取消或抛出Error时释放探测名额, 否则熔断器无法再恢复
+      if (!settled) {
+        breaker?.release()
       }
     }
   }
 
-  override suspend fun put(key: K, v: V) {
-    val redisKey = redisKey(keySerializer.serialize(key))
-    val serialize = valueSerializer.serialize(v)
+  private suspend fun <T> withLoaderTimeout(block: suspend () -> T): T {
+    val loaderTimeout = loaderTimeout ?: return block.invoke()
+    try {
+      return withTimeout(loaderTimeout.toMillis()) { block.invoke() }
+    } catch (e: TimeoutCancellationException) {
+      // 转换为普通异常, 避免被调用方当作协程取消
+      throw RedisCacheLoadException("缓存加载超时: ${loaderTimeout.toMillis()}ms", e)
+    }
+  }
+
+  private fun serveStale(redisKey: String, stale: ByteArray, cause: Exception?): V {
+    if (cause != null) {
+      log.warn("加载缓存失败, 返回过期的值: {} {}", redisKey, cause.toString())
+    }
+    metrics?.staleServed()
+    return deserialize(stale)
+  }
+
+  override suspend fun put(key: K, v: V) = doPut(redisKey(key), v)
+
+  internal suspend fun doPut(redisKey: String, v: V) {
     val timeout = calculateTimeout()
-    redisTemplate.opsForValue().set(redisKey, serialize, timeout).awaitSingleOrNull()
+    val serialize = serialize(v, timeout, 0)
+    storage.set(redisKey, serialize, retention(timeout))
+    hotKeyCache?.invalidate(redisKey)
+    bloomFilter?.addAll(listOf(redisKey))
   }
 
   override suspend fun putAll(map: Map<K, V>) {
-    coroutineScope {
-      map.map { (k, v) -> async { put(k, v) } }.forEach { it.await() }
-    }
+    doPutAll(map.entries.associate { (k, v) -> redisKey(k) to v })
+  }
+
+  /** @param entries redis key -> value */
+  internal suspend fun doPutAll(entries: Map<String, V>) {
+    storage.setAll(entries.map { (redisKey, v) ->
+      val timeout = calculateTimeout()
+      Triple(redisKey, serialize(v, timeout, 0), retention(timeout))
+    })
+    hotKeyCache?.invalidateAll(entries.keys)
+    bloomFilter?.addAll(entries.keys)
   }
 
-  override suspend fun invalidate(key: K) {
-    val redisKey = redisKey(keySerializer.serialize(key))
-    redisTemplate.opsForValue().delete(redisKey).awaitSingleOrNull()
+  override suspend fun invalidate(key: K) = doInvalidate(redisKey(key))
+
+  internal suspend fun doInvalidate(redisKey: String) {
+    storage.delete(redisKey)
+    hotKeyCache?.invalidate(redisKey)
+    // 失效通常意味着数据源中的数据发生了变化, 新增的数据可能没有经过缓存写入
+    bloomFilter?.addAll(listOf(redisKey))
   }
 
   override suspend fun invalidateAll(keys: Iterable<K>) {
-    coroutineScope {
-      keys.map { key -> async { invalidate(key) } }.forEach { it.await() }
+    doInvalidateAll(keys.map { redisKey(it) })
+  }
+
+  internal suspend fun doInvalidateAll(redisKeys: Collection<String>) {
+    if (redisKeys.isEmpty()) {
+      return
+    }
+    storage.deleteAll(redisKeys)
+    hotKeyCache?.invalidateAll(redisKeys)
+    bloomFilter?.addAll(redisKeys)
+  }
+
+  /**
+   * 当前被自动提升到本地缓存的热点key, 用于诊断
+   *
+   * @return redis key -> 提升时估算的时间窗口内访问次数, 按访问次数从高到低排列; 未开启热点探测时返回空
+   */
+  fun hotKeys(): Map<String, Int> = hotKeyCache?.hotKeys() ?: emptyMap()
+
+  private fun getHot(redisKey: String): V? {
+    val hotKeyCache = hotKeyCache ?: return null
+    val value = hotKeyCache.getIfPresent(redisKey)
+    if (value != null) {
+      metrics?.l1(1, 0)
     }
+    return value
   }
 
-  private fun redisKey(key: String) = "$finalPrefix$key"
+  /** 生成去重后的key -> redis key, 保持入参顺序 */
+  internal fun redisKeys(keys: Iterable<K>): Map<K, String> {
+    val result = LinkedHashMap<K, String>()
+    keys.forEach { key -> result.computeIfAbsent(key) { redisKey(it) } }
+    return result
+  }
+
+  /** 过滤掉布隆过滤器判定为不存在的key */
+  private fun filterKeys(keys: Map<K, String>): Map<K, String> {
+    val filter = bloomFilter ?: return keys
+    return keys.filterValues { filter.mightContain(it) }
+  }
+
+  /** 批量读取, 返回结果保持入参顺序, 不存在的key对应的value为null */
+  private suspend fun multiGet(keys: Map<K, String>): Map<K, ByteArray?> {
+    if (keys.isEmpty()) {
+      return emptyMap()
+    }
+    val valueMap = storage.multiGet(keys.values.toList())
+    val result = LinkedHashMap<K, ByteArray?>()
+    keys.forEach { (key, redisKey) -> result[key] = valueMap[redisKey] }
+    return result
+  }
+
+  /**
+   * @param timeout 写入redis的过期时间
+   * @param delta   加载耗时(毫秒), 用于XFetch计算提前刷新的概率, 直接写入的值为0
+   */
+  private fun serialize(value: V, timeout: Duration, delta: Long): ByteArray {
+    val start = if (metrics == null) 0L else System.nanoTime()
+    var serialize = valueSerializer.serialize(value)
+    if (compression != null) {
+      serialize = compression.compress(serialize)
+    }
+    sizeHints?.put(value, serialize.size)
+    val xfetchDelta = if (xfetchBeta != null) delta else 0
+    val withExpireAt = xfetchDelta > 0 || staleIfError != null
+    if (refreshAfterWrite != null || withExpireAt) {
+      val now = System.currentTimeMillis()
+      val expireAt = now + timeout.toMillis()
+      val refreshAt = if (refreshAfterWrite != null) now + refreshAfterWrite.toMillis() else expireAt
+      serialize = RedisCacheEntry.encode(serialize, refreshAt, xfetchDelta, if (withExpireAt) expireAt else 0)
+    }
+    metrics?.recordSerialize(System.nanoTime() - start)
+    return serialize
+  }
+
+  /** 序列化并按配置压缩, 不附带头部, 用于堆外本地缓存 */
+  internal fun encode(value: V): ByteArray {
+    val serialize = valueSerializer.serialize(value)
+    return compression?.compress(serialize) ?: serialize
+  }
+
+  /** [encode] 的逆操作 */
+  internal fun decode(bytes: ByteArray): V = deserialize(RedisCacheEntry(bytes, 0, Long.MAX_VALUE))
+
+  internal fun enableSizeHints() {
+    sizeHints = Caffeine.newBuilder().weakKeys().build()
+  }
+
+  /**
+   * 值在redis中保存的字节数(压缩后, 不含头部), 作为本地缓存的默认权重.
+   * 优先使用读写redis时已知的长度, 只有不经过redis的值才会重新序列化
+   */
+  internal fun serializedSize(value: V): Int {
+    return sizeHints?.getIfPresent(value) ?: encode(value).size
+  }
+
+  private fun deserialize(value: ByteArray): V {
+    return deserialize(RedisCacheEntry.decode(value))
+  }
+
+  private fun deserialize(entry: RedisCacheEntry): V {
+    val start = if (metrics == null) 0L else System.nanoTime()
+    val bytes = entry.bytes
+    val offset = entry.offset
+    val length = entry.length
+    val value = if (!ValueCompression.isCompressed(bytes, offset, length)) {
+      valueSerializer.deserialize(bytes, offset, length)
+    } else {
+      val decompressed = compression?.decompress(bytes, offset, length)
+        ?: ValueCompression.decompressBuiltin(bytes, offset, length)
+      valueSerializer.deserialize(decompressed)
+    }
+    metrics?.recordDeserialize(System.nanoTime() - start)
+    sizeHints?.put(value, length)
+    return value
+  }
+
+  /** redis中不存在有效值, stale-if-error模式下逻辑过期的值同样视为不存在 */
+  private fun isNull(value: ByteArray?): Boolean {
+    return RedisCacheEntry.isAbsent(value) || RedisCacheEntry.isNullValue(value) || isExpired(value)
+  }
+
+  /** stale-if-error模式下值是否已经逻辑过期 */
+  private fun isExpired(value: ByteArray?): Boolean {
+    if (staleIfError == null || RedisCacheEntry.isAbsent(value) || RedisCacheEntry.isNullValue(value)) {
+      return false
+    }
+    return RedisCacheEntry.decode(value!!).isExpired()
+  }
+
+  /** 写入redis的过期时间, stale-if-error模式下在逻辑过期后继续保留 [staleIfError] */
+  private fun retention(timeout: Duration): Duration {
+    return if (staleIfError == null) timeout else timeout.plus(staleIfError)
+  }
 
   private fun lockKey(redisKey: String): String = "lock_key:$redisKey"
 
+  /**
+   * 按照redis过期时间的随机范围等比例计算本地缓存的过期时间, 且不超过redis的最小过期时间
+   */
+  internal fun memoryTimeout(base: Duration): Duration {
+    var memoryTimeout = base
+    if (maxTimeoutSeconds != null && maxTimeoutSeconds > timeoutSeconds) {
+      val ratio = ThreadLocalRandom.current()
+        .nextDouble(1.0, maxTimeoutSeconds.toDouble() / timeoutSeconds)
+      memoryTimeout = Duration.ofNanos((base.toNanos() * ratio).toLong())
+    }
+    return if (memoryTimeout > timeout) timeout else memoryTimeout
+  }
+
   private fun calculateTimeout(): Duration {
     return if (maxTimeoutSeconds == null || maxTimeoutSeconds < timeoutSeconds) {
       timeout
@@ -5,8 +5,10 @@ package com.zzs.framework.core.cache.coroutine
  */
 class DirectRedisLoadingCache<K : Any, V : Any>(
   private val directRedisCache: DirectRedisCache<K, V>,
-  private val block: suspend (K) -> V?
+  private val block: suspend (K) -> V?,
+  batchBlock: (suspend (Collection<K>) -> Map<K, V>)? = null
 ) : RedisLoadingCache<K, V> {
+  private val batchBlock = batchBlock ?: block.toBatchLoader()
 
   override suspend fun getIfPresent(key: K): V? {
     return directRedisCache.getIfPresent(key)
@@ -16,6 +18,10 @@ class DirectRedisLoadingCache<K : Any, V : Any>(
     return directRedisCache.get(key, block)
   }
 
+  override suspend fun getAll(keys: Iterable<K>): Map<K, V> {
+    return directRedisCache.getAll(keys, batchBlock)
+  }
+
   override suspend fun invalidate(key: K) {
     directRedisCache.invalidate(key)
   }
@@ -31,4 +37,7 @@ class DirectRedisLoadingCache<K : Any, V : Any>(
   override suspend fun put(key: K, v: V) {
     directRedisCache.put(key, v)
   }
+
+  /** 当前被自动提升到本地缓存的热点key, 详见 [DirectRedisCache.hotKeys] */
+  fun hotKeys(): Map<String, Int> = directRedisCache.hotKeys()
 }
@@ -0,0 +1,32 @@
+package com.zzs.framework.core.cache.coroutine
+
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+
+/**
+ * 将热点key保存在本地快照文件中, 每行一个key, 写入时先写临时文件再替换, 避免读取到不完整的快照
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+class FileHotKeyStore(private val path: Path) : HotKeyStore {
+
+  override suspend fun load(limit: Int): List<String> = withContext(Dispatchers.IO) {
+    if (!Files.exists(path)) {
+      return@withContext emptyList()
+    }
+    Files.newBufferedReader(path).useLines { lines ->
+      lines.filter { it.isNotEmpty() }.take(limit).toList()
+    }
+  }
+
+  override suspend fun save(keys: List<String>) = withContext(Dispatchers.IO) {
+    path.toAbsolutePath().parent?.let { Files.createDirectories(it) }
+    val temp = Files.createTempFile(path.toAbsolutePath().parent, path.fileName.toString(), ".tmp")
+    Files.write(temp, keys)
+    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+    Unit
+  }
+}
@@ -0,0 +1,254 @@
+package com.zzs.framework.core.cache.coroutine
+
+import kotlinx.coroutines.*
+import kotlinx.coroutines.reactive.asFlow
+import kotlinx.coroutines.reactor.awaitSingle
+import kotlinx.coroutines.reactor.awaitSingleOrNull
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withPermit
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import org.springframework.data.redis.core.ReactiveRedisTemplate
+import org.springframework.data.redis.core.ScanOptions
+import org.springframework.data.redis.core.script.RedisScript
+import org.springframework.data.redis.serializer.RedisElementReader
+import org.springframework.data.redis.serializer.RedisElementWriter
+import java.nio.ByteBuffer
+import java.time.Duration
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * 将命名空间下的缓存值按照key的哈希值分散保存到 [buckets] 个redis hash中, 减少大量小value时每个key的内存开销.
+ *
+ * - hash的key为 `<prefix>_bucket_:<index>`, field为去掉命名空间前缀的key
+ * - 每个value前附加8字节的过期时间戳, 读取时过期的值视为不存在, 并按条件删除
+ * - redis 7.4及以上版本额外通过HPEXPIRE设置字段级过期时间, 由redis自行删除过期字段
+ * - 每次写入会将整个hash的过期时间延长到不小于本次写入的过期时间
+ * - 低版本不支持字段级过期, 持续写入的hash也不会整体过期, 因此首次发现HPEXPIRE不可用后启动清理任务,
+ *   每隔 [sweepInterval] 通过HSCAN遍历全部hash并按条件删除过期字段
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+internal class HashRedisCacheStorage(
+  private val valueTemplate: ReactiveRedisTemplate<String, ByteArray>,
+  private val prefix: String,
+  private val buckets: Int,
+  private val sweepInterval: Duration
+) : RedisCacheStorage {
+  companion object {
+    private val log: Logger = LoggerFactory.getLogger(HashRedisCacheStorage::class.java)
+
+    /** 单次脚本调用写入的最大字段数量 */
+    private const val BATCH_SIZE = 200
+
+    private const val HEADER_SIZE = 8
+
+    /** 清理过期字段时每次HSCAN的数量 */
+    private const val SCAN_COUNT = 500L
+
+    /**
+     * KEYS[1]: hash, ARGV[1]: hash的过期时间(毫秒), 之后每三个参数为 field, value, 过期时间(毫秒).
+     * 返回1表示redis支持字段级过期, 0表示不支持
+     */
+    private val SET_SCRIPT: RedisScript<Long> = RedisScript.of(
+      """
+      local supported = 1
+      for i = 2, #ARGV, 3 do
+        redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1])
+        if not pcall(redis.call, 'hpexpire', KEYS[1], ARGV[i + 2], 'FIELDS', 1, ARGV[i]) then
+          supported = 0
+        end
+      end
+      if redis.call('pttl', KEYS[1]) < tonumber(ARGV[1]) then
+        redis.call('pexpire', KEYS[1], ARGV[1])
+      end
+      return supported
+      """.trimIndent(), Long::class.java
+    )
+
+    /**
+     * 每两个参数为 field, 过期时间戳. 仅当字段的过期时间戳未变化时删除, 避免删除并发写入的新值.
+     * 返回删除的字段数量
+     */
+    private val EXPIRE_SCRIPT: RedisScript<Long> = RedisScript.of(
+      """
+      local removed = 0
+      for i = 1, #ARGV, 2 do
+        local value = redis.call('hget', KEYS[1], ARGV[i])
+        if value and string.sub(value, 1, 8) == ARGV[i + 1] then
+          removed = removed + redis.call('hdel', KEYS[1], ARGV[i])
+        end
+      end
+      return removed
+      """.trimIndent(), Long::class.java
+    )
+
+    private val ARGS_WRITER = RedisElementWriter<ByteArray> { ByteBuffer.wrap(it) }
+    private val RESULT_READER = RedisElementReader<Long> { String(it.array()).toLong() }
+  }
+
+  init {
+    require(buckets > 0) { "buckets must be positive" }
+  }
+
+  private val hashOps = valueTemplate.opsForHash<String, ByteArray>()
+  private val sweeping = AtomicBoolean(false)
+  private val sweepScope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+
+  override suspend fun get(redisKey: String): ByteArray? {
+    val raw = hashOps.get(bucket(redisKey), field(redisKey)).awaitSingleOrNull()
+    return unwrap(redisKey, raw)
+  }
+
+  override suspend fun multiGet(redisKeys: List<String>, concurrency: Int?): Map<String, ByteArray?> {
+    if (redisKeys.isEmpty()) {
+      return emptyMap()
+    }
+    val semaphore = concurrency?.let { Semaphore(it.coerceAtLeast(1)) }
+    val values = coroutineScope {
+      redisKeys.groupBy { bucket(it) }.flatMap { (bucket, keys) ->
+        keys.chunked(BATCH_SIZE).map { chunk ->
+          async {
+            val fetch: suspend () -> List<ByteArray?> = {
+              hashOps.multiGet(bucket, chunk.map { field(it) }).awaitSingle()
+            }
+            val raw = if (semaphore == null) fetch() else semaphore.withPermit { fetch() }
+            chunk.zip(raw)
+          }
+        }
+      }.awaitAll()
+    }
+    val result = HashMap<String, ByteArray?>(redisKeys.size)
+    values.forEach { chunk -> chunk.forEach { (redisKey, raw) -> result[redisKey] = unwrap(redisKey, raw) } }
+    return result
+  }
+
+  override suspend fun set(redisKey: String, value: ByteArray, timeout: Duration) {
+    setAll(listOf(Triple(redisKey, value, timeout)))
+  }
+
+  override suspend fun setAll(entries: List<Triple<String, ByteArray, Duration>>) {
+    if (entries.isEmpty()) {
+      return
+    }
+    val now = System.currentTimeMillis()
+    coroutineScope {
+      entries.groupBy { bucket(it.first) }.flatMap { (bucket, group) ->
+        group.chunked(BATCH_SIZE).map { chunk ->
+          async {
+            val bucketTimeout = chunk.maxOf { it.third.toMillis() }
+            val args = ArrayList<ByteArray>(chunk.size * 3 + 1)
+            args.add(bucketTimeout.toString().toByteArray())
+            chunk.forEach { (redisKey, value, timeout) ->
+              args.add(field(redisKey).toByteArray())
+              args.add(wrap(value, now + timeout.toMillis()))
+              args.add(timeout.toMillis().toString().toByteArray())
+            }
+            val supported = valueTemplate.execute(SET_SCRIPT, listOf(bucket), args, ARGS_WRITER, RESULT_READER)
+              .next().awaitSingleOrNull()
+            if (supported == 0L) {
+              startSweeper()
+            }
+          }
+        }
+      }.awaitAll()
+    }
+  }
+
+  override suspend fun delete(redisKey: String) {
+    hashOps.remove(bucket(redisKey), field(redisKey)).awaitSingleOrNull()
+  }
+
+  override suspend fun deleteAll(redisKeys: Collection<String>) {
+    if (redisKeys.isEmpty()) {
+      return
+    }
+    coroutineScope {
+      redisKeys.groupBy { bucket(it) }.flatMap { (bucket, keys) ->
+        keys.chunked(BATCH_SIZE).map { chunk ->
+          async { hashOps.remove(bucket, *chunk.map { field(it) }.toTypedArray()).awaitSingleOrNull() }
+        }
+      }.awaitAll()
+    }
+  }
+
+  /** redis不支持字段级过期时启动清理任务, 各个节点的清理时间随机错开 */
+  private fun startSweeper() {
+    if (!sweeping.compareAndSet(false, true)) {
+      return
+    }
+    log.info("redis不支持HPEXPIRE, 启动过期字段清理任务: {}", prefix)
+    sweepScope.launch {
+      while (isActive) {
+        val interval = sweepInterval.toMillis()
+        delay(interval / 2 + ThreadLocalRandom.current().nextLong(interval / 2 + 1))
+        try {
+          val removed = sweep()
+          if (removed > 0) {
+            log.debug("清理过期的缓存字段: {} {}", prefix, removed)
+          }
+        } catch (e: CancellationException) {
+          throw e
+        } catch (e: Exception) {
+          log.warn("清理过期的缓存字段出现异常: {}", prefix, e)
+        }
+      }
+    }
+  }
+
+  /** 遍历全部hash, 按条件删除已经过期的字段, 返回删除的数量 */
+  private suspend fun sweep(): Long {
+    var removed = 0L
+    val options = ScanOptions.scanOptions().count(SCAN_COUNT).build()
+    for (index in 0 until buckets) {
+      val bucket = bucket(index)
+      val now = System.currentTimeMillis()
+      val args = ArrayList<ByteArray>()
+      hashOps.scan(bucket, options).asFlow().collect { (field, raw) ->
+        if (raw.size >= HEADER_SIZE && ByteBuffer.wrap(raw).getLong() <= now) {
+          args.add(field.toByteArray())
+          args.add(raw.copyOf(HEADER_SIZE))
+        }
+      }
+      args.chunked(BATCH_SIZE * 2).forEach { chunk ->
+        removed += valueTemplate.execute(EXPIRE_SCRIPT, listOf(bucket), chunk, ARGS_WRITER, RESULT_READER)
+          .next().awaitSingleOrNull() ?: 0L
+      }
+    }
+    return removed
+  }
+
+  private fun bucket(redisKey: String): String {
+    val hash = redisKey.hashCode()
+    return bucket(((hash xor (hash ushr 16)) and Int.MAX_VALUE) % buckets)
+  }
+
+  private fun bucket(index: Int) = "${prefix}_bucket_:$index"
+
+  private fun field(redisKey: String): String {
+    return if (redisKey.startsWith(prefix)) redisKey.substring(prefix.length) else redisKey
+  }
+
+  private fun wrap(value: ByteArray, expireAt: Long): ByteArray {
+    val result = ByteArray(HEADER_SIZE + value.size)
+    ByteBuffer.wrap(result).putLong(expireAt)
+    value.copyInto(result, HEADER_SIZE)
+    return result
+  }
+
+  /** 去掉过期时间戳, 过期的值返回null并按条件删除 */
+  private fun unwrap(redisKey: String, raw: ByteArray?): ByteArray? {
+    if (raw == null || raw.size < HEADER_SIZE) {
+      return null
+    }
+    val expireAt = ByteBuffer.wrap(raw).getLong()
+    if (expireAt <= System.currentTimeMillis()) {
+      val args = listOf(field(redisKey).toByteArray(), raw.copyOf(HEADER_SIZE))
+      valueTemplate.execute(EXPIRE_SCRIPT, listOf(bucket(redisKey)), args, ARGS_WRITER, RESULT_READER)
+        .subscribe({}, { e -> log.debug("删除过期的缓存字段出现异常: {}", redisKey, e) })
+      return null
+    }
+    return raw.copyOfRange(HEADER_SIZE, raw.size)
+  }
+}
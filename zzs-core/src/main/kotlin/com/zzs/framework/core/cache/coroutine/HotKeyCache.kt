@@ -0,0 +1,61 @@
+package com.zzs.framework.core.cache.coroutine
+
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import java.time.Duration
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * 热点key探测与本地缓存.
+ *
+ * 通过 [CountMinSketch] 统计每个时间窗口内key的访问次数, 访问次数达到 [threshold] 的key
+ * 会被放入一个容量较小、过期时间较短的本地缓存, 后续读取直接命中本地缓存, 不再访问redis.
+ * 本地缓存不会接收其他节点的失效通知, 因此过期时间决定了其他节点写入后本节点最长的不一致时间.
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+internal class HotKeyCache<V : Any>(
+  private val threshold: Int,
+  private val window: Duration,
+  maxSize: Long,
+  ttl: Duration
+) {
+  private val sketch = CountMinSketch(4096)
+  private val windowStart = AtomicLong(System.nanoTime())
+  private val cache: Cache<String, HotValue<V>> = Caffeine.newBuilder()
+    .maximumSize(maxSize)
+    .expireAfterWrite(ttl)
+    .build()
+
+  fun getIfPresent(redisKey: String): V? = cache.getIfPresent(redisKey)?.value
+
+  /** 记录一次对redis的访问, 达到阈值时将值放入本地缓存 */
+  fun record(redisKey: String, value: V) {
+    rollWindow()
+    val count = sketch.increment(redisKey)
+    if (count >= threshold) {
+      cache.put(redisKey, HotValue(value, count))
+    }
+  }
+
+  fun invalidate(redisKey: String) = cache.invalidate(redisKey)
+
+  fun invalidateAll(redisKeys: Iterable<String>) = cache.invalidateAll(redisKeys)
+
+  /** 当前在本地缓存中的热点key -> 晋升时估算的窗口内访问次数 */
+  fun hotKeys(): Map<String, Int> {
+    return cache.asMap().entries
+      .sortedByDescending { it.value.count }
+      .associate { it.key to it.value.count }
+  }
+
+  private fun rollWindow() {
+    val start = windowStart.get()
+    val now = System.nanoTime()
+    if (now - start >= window.toNanos() && windowStart.compareAndSet(start, now)) {
+      sketch.clear()
+    }
+  }
+
+  private class HotValue<V>(val value: V, val count: Int)
+}
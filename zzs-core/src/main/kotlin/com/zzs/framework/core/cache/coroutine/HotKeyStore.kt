@@ -0,0 +1,24 @@
+package com.zzs.framework.core.cache.coroutine
+
+/**
+ * 热点key的持久化存储, 用于在节点启动时预热本地缓存
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+interface HotKeyStore {
+
+  /**
+   * 读取热点key
+   *
+   * @param limit 最大数量
+   * @return 按照访问频率从高到低排列的redis key
+   */
+  suspend fun load(limit: Int): List<String>
+
+  /**
+   * 保存热点key
+   *
+   * @param keys 按照访问频率从高到低排列的redis key
+   */
+  suspend fun save(keys: List<String>)
+}
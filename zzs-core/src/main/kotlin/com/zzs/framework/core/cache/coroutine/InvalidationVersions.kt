@@ -0,0 +1,57 @@
+package com.zzs.framework.core.cache.coroutine
+
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * 按照redis key分段的失效版本号, 用于避免失效之前开始的redis读取在失效之后把旧值写回本地缓存.
+ *
+ * 读取redis之前记录版本号, 写入本地缓存前后各检查一次, 版本号发生变化说明期间出现过失效, 放弃写入.
+ * 失效时必须先递增版本号再删除本地缓存.
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+internal class InvalidationVersions(size: Int = 1024) {
+  private val mask: Int
+  private val versions: AtomicLongArray
+
+  init {
+    require(size > 0) { "size must be positive" }
+    val capacity = if (size == 1) 1 else Integer.highestOneBit(size - 1) shl 1
+    mask = capacity - 1
+    versions = AtomicLongArray(capacity)
+  }
+
+  fun get(redisKey: String): Long = versions.get(index(redisKey))
+
+  fun increment(redisKey: String) {
+    versions.incrementAndGet(index(redisKey))
+  }
+
+  fun incrementAll() {
+    for (i in 0 until versions.length()) {
+      versions.incrementAndGet(i)
+    }
+  }
+
+  /**
+   * 版本号未发生变化时执行写入, 写入之后版本号发生变化则执行回滚
+   *
+   * @return 是否保留了写入
+   */
+  inline fun putIfCurrent(redisKey: String, version: Long, put: () -> Unit, rollback: () -> Unit): Boolean {
+    if (get(redisKey) != version) {
+      return false
+    }
+    put.invoke()
+    if (get(redisKey) != version) {
+      rollback.invoke()
+      return false
+    }
+    return true
+  }
+
+  private fun index(redisKey: String): Int {
+    val hash = redisKey.hashCode()
+    return (hash xor (hash ushr 16)) and mask
+  }
+}
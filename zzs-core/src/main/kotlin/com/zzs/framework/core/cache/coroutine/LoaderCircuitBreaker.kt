@@ -0,0 +1,56 @@
+package com.zzs.framework.core.cache.coroutine
+
+import java.time.Duration
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * 加载函数的熔断器, 每个命名空间一个, 状态仅在当前节点内维护.
+ *
+ * 连续失败 [failureThreshold] 次后熔断 [openDuration], 期间拒绝所有加载;
+ * 熔断时间结束后只放行一次探测, 探测成功则恢复, 失败则重新熔断.
+ * 每次 [tryAcquire] 成功后必须调用 [onSuccess]、[onFailure] 或 [release] 之一.
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+internal class LoaderCircuitBreaker(
+  private val failureThreshold: Int,
+  private val openDuration: Duration
+) {
+  private val failures = AtomicInteger()
+  private val probing = AtomicBoolean()
+
+  /** 熔断截止时间(纳秒), 为null表示未熔断 */
+  @Volatile
+  private var openUntil: Long? = null
+
+  /** 是否允许执行本次加载 */
+  fun tryAcquire(): Boolean {
+    val openUntil = openUntil ?: return true
+    if (System.nanoTime() - openUntil < 0) {
+      return false
+    }
+    return probing.compareAndSet(false, true)
+  }
+
+  fun onSuccess() {
+    failures.set(0)
+    openUntil = null
+    probing.set(false)
+  }
+
+  /** 加载被取消等无法判断成败的情况, 不计入结果, 探测被取消时允许下一次探测 */
+  fun release() {
+    if (openUntil != null) {
+      probing.set(false)
+    }
+  }
+
+  fun onFailure() {
+    if (probing.get() || failures.incrementAndGet() >= failureThreshold) {
+      openUntil = System.nanoTime() + openDuration.toNanos()
+      failures.set(0)
+      probing.set(false)
+    }
+  }
+}
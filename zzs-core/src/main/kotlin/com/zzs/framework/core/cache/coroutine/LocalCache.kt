@@ -0,0 +1,83 @@
+package com.zzs.framework.core.cache.coroutine
+
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import java.time.Duration
+
+/**
+ * 多级缓存的本地缓存, key为redis key
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+internal interface LocalCache<V : Any> {
+
+  fun getIfPresent(redisKey: String): V?
+
+  fun put(redisKey: String, value: V)
+
+  fun putAll(values: Map<String, V>)
+
+  fun invalidate(redisKey: String)
+
+  fun invalidateAll(redisKeys: Iterable<String>)
+
+  /** 清空本地缓存 */
+  fun invalidateAll()
+
+  /** 访问频率最高的redis key */
+  fun hottestKeys(limit: Int): List<String>
+
+  /** 注册Caffeine统计指标 */
+  fun monitor(metrics: RedisCacheMetrics)
+}
+
+/**
+ * 在堆内保存反序列化后的值
+ *
+ * @param maxSize 未指定 [weigher] 时为最大数量, 否则为最大总权重
+ * @param weigher 计算单个值的权重
+ * @author 宋志宗 on 2026/10/17
+ */
+internal class HeapLocalCache<V : Any>(
+  maxSize: Long,
+  timeout: Duration,
+  weigher: ((V) -> Int)?,
+  recordStats: Boolean
+) : LocalCache<V> {
+  private val cache: Cache<String, V>
+
+  init {
+    val builder = Caffeine.newBuilder().expireAfterWrite(timeout)
+    if (weigher == null) {
+      builder.maximumSize(maxSize)
+    } else {
+      builder.maximumWeight(maxSize)
+    }
+    if (recordStats) {
+      builder.recordStats()
+    }
+    cache = if (weigher == null) {
+      builder.build()
+    } else {
+      builder.weigher { _: String, value: V -> weigher.invoke(value) }.build()
+    }
+  }
+
+  override fun getIfPresent(redisKey: String): V? = cache.getIfPresent(redisKey)
+
+  override fun put(redisKey: String, value: V) = cache.put(redisKey, value)
+
+  override fun putAll(values: Map<String, V>) = cache.putAll(values)
+
+  override fun invalidate(redisKey: String) = cache.invalidate(redisKey)
+
+  override fun invalidateAll(redisKeys: Iterable<String>) = cache.invalidateAll(redisKeys)
+
+  override fun invalidateAll() = cache.invalidateAll()
+
+  override fun hottestKeys(limit: Int): List<String> {
+    return cache.policy().eviction().map { it.hottest(limit).keys.toList() }.orElse(emptyList())
+  }
+
+  override fun monitor(metrics: RedisCacheMetrics) = metrics.monitor(cache)
+}
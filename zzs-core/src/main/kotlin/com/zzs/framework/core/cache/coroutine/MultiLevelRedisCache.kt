@@ -1,70 +1,190 @@
 package com.zzs.framework.core.cache.coroutine
 
-import com.github.benmanes.caffeine.cache.Cache
-import com.github.benmanes.caffeine.cache.Caffeine
 import java.time.Duration
 
 /**
+ * @param maxSize 本地缓存的最大数量; 指定 [weigher] 时为最大总权重; 开启 [offHeap] 时为堆外内存的最大字节数
+ * @param weigher 计算本地缓存中单个值的权重
+ * @param offHeap 是否将序列化后的值保存在堆外内存中, 命中时再反序列化
  * @author 宋志宗 on 2022/8/15
  */
 class MultiLevelRedisCache<K : Any, V : Any>(
   maxSize: Long,
   timeout: Duration,
-  private val directRedisCache: DirectRedisCache<K, V>
+  private val directRedisCache: DirectRedisCache<K, V>,
+  private val invalidationBus: RedisCacheInvalidationBus? = null,
+  private val invalidationChannel: String? = null,
+  private val metrics: RedisCacheMetrics? = null,
+  weigher: ((V) -> Int)? = null,
+  offHeap: Boolean = false
 ) : RedisCache<K, V> {
-  private val cache: Cache<String, V>
+  private val cache: LocalCache<V> = if (offHeap) {
+    OffHeapLocalCache(maxSize, timeout, directRedisCache::encode, directRedisCache::decode, metrics != null)
+  } else {
+    HeapLocalCache(maxSize, timeout, weigher, metrics != null)
+  }
+  private val versions = InvalidationVersions()
 
   init {
-    cache = Caffeine.newBuilder()
-      .maximumSize(maxSize)
-      .expireAfterWrite(timeout).build()
+    metrics?.let { cache.monitor(it) }
+    if (invalidationBus != null && invalidationChannel != null) {
+      invalidationBus.subscribe(invalidationChannel, { invalidateMemory() }) { invalidateMemory(it) }
+    }
   }
 
   override suspend fun getIfPresent(key: K): V? {
-    val serializeKey = directRedisCache.keySerializer.serialize(key)
-    var value = cache.getIfPresent(serializeKey)
+    val redisKey = directRedisCache.redisKey(key)
+    var value = cache.getIfPresent(redisKey)
     if (value != null) {
+      metrics?.l1(1, 0)
       return value
     }
-    value = directRedisCache.getIfPresent(key)
+    metrics?.l1(0, 1)
+    val version = versions.get(redisKey)
+    value = directRedisCache.doGetIfPresent(redisKey)
     if (value != null) {
-      cache.put(serializeKey, value)
+      putMemory(redisKey, value, version)
     }
     return value
   }
 
+  override suspend fun getAll(keys: Iterable<K>): Map<K, V> {
+    val (result, misses) = getAllFromMemory(keys)
+    if (misses.isNotEmpty()) {
+      val versions = missVersions(misses)
+      directRedisCache.doGetAll(misses).forEach { (k, v) ->
+        val redisKey = misses[k]!!
+        putMemory(redisKey, v, versions[redisKey]!!)
+        result[k] = v
+      }
+    }
+    return result
+  }
+
   override suspend fun get(key: K, block: suspend (K) -> V?): V? {
-    val serializeKey = directRedisCache.keySerializer.serialize(key)
-    var value = cache.getIfPresent(serializeKey)
+    val redisKey = directRedisCache.redisKey(key)
+    var value = cache.getIfPresent(redisKey)
     if (value != null) {
+      metrics?.l1(1, 0)
       return value
     }
-    value = directRedisCache.get(key, block)
+    metrics?.l1(0, 1)
+    val version = versions.get(redisKey)
+    value = directRedisCache.doGet(key, redisKey, block)
     if (value != null) {
-      cache.put(serializeKey, value)
+      putMemory(redisKey, value, version)
     }
     return value
   }
 
+  override suspend fun getAll(
+    keys: Iterable<K>,
+    block: suspend (Collection<K>) -> Map<K, V>
+  ): Map<K, V> {
+    val (result, misses) = getAllFromMemory(keys)
+    if (misses.isNotEmpty()) {
+      val versions = missVersions(misses)
+      directRedisCache.doGetAll(misses, block).forEach { (k, v) ->
+        val redisKey = misses[k]!!
+        putMemory(redisKey, v, versions[redisKey]!!)
+        result[k] = v
+      }
+    }
+    return result
+  }
+
   override suspend fun put(key: K, v: V) {
-    cache.put(directRedisCache.keySerializer.serialize(key), v)
-    directRedisCache.put(key, v)
+    val redisKey = directRedisCache.redisKey(key)
+    versions.increment(redisKey)
+    cache.put(redisKey, v)
+    directRedisCache.doPut(redisKey, v)
+    broadcast(listOf(redisKey))
   }
 
   override suspend fun putAll(map: Map<K, V>) {
+    val entries = LinkedHashMap<String, V>()
     map.forEach { (k, v) ->
-      cache.put(directRedisCache.keySerializer.serialize(k), v)
+      val redisKey = directRedisCache.redisKey(k)
+      versions.increment(redisKey)
+      cache.put(redisKey, v)
+      entries[redisKey] = v
     }
-    directRedisCache.putAll(map)
+    directRedisCache.doPutAll(entries)
+    broadcast(entries.keys)
   }
 
   override suspend fun invalidate(key: K) {
-    cache.invalidate(directRedisCache.keySerializer.serialize(key))
-    directRedisCache.invalidate(key)
+    val redisKey = directRedisCache.redisKey(key)
+    invalidateMemory(listOf(redisKey))
+    directRedisCache.doInvalidate(redisKey)
+    broadcast(listOf(redisKey))
   }
 
   override suspend fun invalidateAll(keys: Iterable<K>) {
-    keys.forEach { cache.invalidate(directRedisCache.keySerializer.serialize(it)) }
-    directRedisCache.invalidateAll(keys)
+    val redisKeys = keys.map { directRedisCache.redisKey(it) }
+    invalidateMemory(redisKeys)
+    directRedisCache.doInvalidateAll(redisKeys)
+    broadcast(redisKeys)
+  }
+
+  /** 从redis批量读取并写入本地缓存, 返回写入数量 */
+  internal suspend fun warmUp(redisKeys: List<String>, concurrency: Int): Int {
+    val versions = redisKeys.associateWith { versions.get(it) }
+    val values = directRedisCache.doGetAllByRedisKeys(redisKeys, concurrency)
+    return values.count { (redisKey, value) -> putMemory(redisKey, value, versions[redisKey]!!) }
+  }
+
+  /** 本地缓存中访问频率最高的redis key */
+  internal fun hottestKeys(limit: Int): List<String> {
+    return cache.hottestKeys(limit)
+  }
+
+  /** 读取redis期间key没有被失效时才写入本地缓存 */
+  private fun putMemory(redisKey: String, value: V, version: Long): Boolean {
+    return versions.putIfCurrent(redisKey, version, { cache.put(redisKey, value) }) {
+      cache.invalidate(redisKey)
+    }
+  }
+
+  private fun missVersions(misses: Map<K, String>): Map<String, Long> {
+    return misses.values.associateWith { versions.get(it) }
+  }
+
+  private fun invalidateMemory(redisKeys: Collection<String>) {
+    redisKeys.forEach { versions.increment(it) }
+    cache.invalidateAll(redisKeys)
+  }
+
+  /** 可能错过了失效消息, 清空本地缓存 */
+  private fun invalidateMemory() {
+    versions.incrementAll()
+    cache.invalidateAll()
+  }
+
+  /** 通知其他节点失效本地缓存 */
+  private fun broadcast(redisKeys: Collection<String>) {
+    if (invalidationBus != null && invalidationChannel != null && redisKeys.isNotEmpty()) {
+      invalidationBus.publish(invalidationChannel, redisKeys)
+    }
+  }
+
+  /** 从本地缓存中批量读取, 返回命中的结果以及未命中的key -> redis key */
+  private fun getAllFromMemory(keys: Iterable<K>): Pair<MutableMap<K, V>, Map<K, String>> {
+    val result = LinkedHashMap<K, V>()
+    val misses = LinkedHashMap<K, String>()
+    keys.forEach { key ->
+      if (result.containsKey(key) || misses.containsKey(key)) {
+        return@forEach
+      }
+      val redisKey = directRedisCache.redisKey(key)
+      val value = cache.getIfPresent(redisKey)
+      if (value != null) {
+        result[key] = value
+      } else {
+        misses[key] = redisKey
+      }
+    }
+    metrics?.l1(result.size, misses.size)
+    return result to misses
   }
 }
@@ -1,67 +1,213 @@
 package com.zzs.framework.core.cache.coroutine
 
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader
 import com.github.benmanes.caffeine.cache.AsyncLoadingCache
 import com.github.benmanes.caffeine.cache.Caffeine
+import com.github.benmanes.caffeine.cache.Expiry
 import kotlinx.coroutines.reactor.awaitSingleOrNull
 import kotlinx.coroutines.reactor.mono
 import reactor.kotlin.core.publisher.toMono
 import java.time.Duration
 import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Executor
 
 /**
+ * @param maxSize 本地缓存的最大数量, 指定 [weigher] 时为最大总权重
+ * @param weigher 计算本地缓存中单个值的权重
  * @author 宋志宗 on 2022/9/2
  */
 class MultiLevelRedisLoadingCache<K : Any, V : Any>(
   maxSize: Long,
-  timeout: Duration,
+  private val timeout: Duration,
   private val directRedisCache: DirectRedisCache<K, V>,
-  private val block: suspend (K) -> V?
+  private val block: suspend (K) -> V?,
+  refreshAfterWrite: Duration? = null,
+  metrics: RedisCacheMetrics? = null,
+  batchBlock: (suspend (Collection<K>) -> Map<K, V>)? = null,
+  private val invalidationBus: RedisCacheInvalidationBus? = null,
+  private val invalidationChannel: String? = null,
+  weigher: ((V) -> Int)? = null
 ) : RedisLoadingCache<K, V> {
-  private val cache: AsyncLoadingCache<K, V>
+  private val batchBlock = batchBlock ?: block.toBatchLoader()
+  private val cache: AsyncLoadingCache<CacheKey<K>, V>
+  private val versions = InvalidationVersions()
 
   init {
-    cache = Caffeine.newBuilder()
-      .maximumSize(maxSize)
-      .expireAfterWrite(timeout)
-      .buildAsync { key, _ -> mono { directRedisCache.get(key, block) }.toFuture() }
+    val builder = Caffeine.newBuilder().expireAfter(MemoryExpiry())
+    if (weigher == null) {
+      builder.maximumSize(maxSize)
+    } else {
+      builder.maximumWeight(maxSize).weigher { _: CacheKey<K>, value: V -> weigher.invoke(value) }
+    }
+    if (refreshAfterWrite != null) {
+      // 刷新期间继续提供旧值, 刷新时读取redis, redis中的值软过期后同样由后台刷新
+      builder.refreshAfterWrite(refreshAfterWrite)
+    }
+    if (metrics != null) {
+      builder.recordStats()
+    }
+    cache = builder.buildAsync(Loader())
+    metrics?.monitor(cache.synchronous())
+    if (invalidationBus != null && invalidationChannel != null) {
+      invalidationBus.subscribe(invalidationChannel, { invalidateMemory() }) { invalidateMemory(it) }
+    }
   }
 
-
   override suspend fun getIfPresent(key: K): V? {
-    val future = cache.getIfPresent(key)
+    val cacheKey = cacheKey(key)
+    val future = cache.getIfPresent(cacheKey)
     if (future != null) {
       val value = future.toMono().awaitSingleOrNull()
       if (value != null) {
         return value
       }
     }
-    val value = directRedisCache.getIfPresent(key) ?: return null
-    cache.put(key, CompletableFuture.completedFuture(value))
+    val version = versions.get(cacheKey.serialized)
+    val value = directRedisCache.doGetIfPresent(cacheKey.serialized) ?: return null
+    versions.putIfCurrent(cacheKey.serialized, version, {
+      cache.put(cacheKey, CompletableFuture.completedFuture(value))
+    }) { cache.synchronous().invalidate(cacheKey) }
     return value
   }
 
   override suspend fun get(key: K): V? {
-    return cache.get(key).toMono().awaitSingleOrNull()
+    return cache.get(cacheKey(key)).toMono().awaitSingleOrNull()
+  }
+
+  override suspend fun getAll(keys: Iterable<K>): Map<K, V> {
+    val cacheKeys = keys.map { cacheKey(it) }
+    val values = cache.getAll(cacheKeys).toMono().awaitSingleOrNull() ?: return emptyMap()
+    val result = LinkedHashMap<K, V>()
+    cacheKeys.forEach { cacheKey ->
+      values[cacheKey]?.let { result[cacheKey.key!!] = it }
+    }
+    return result
   }
 
   override suspend fun put(key: K, v: V) {
-    cache.put(key, CompletableFuture.completedFuture(v))
-    directRedisCache.put(key, v)
+    val cacheKey = cacheKey(key)
+    versions.increment(cacheKey.serialized)
+    cache.put(cacheKey, CompletableFuture.completedFuture(v))
+    directRedisCache.doPut(cacheKey.serialized, v)
+    broadcast(listOf(cacheKey.serialized))
   }
 
   override suspend fun putAll(map: Map<K, V>) {
+    val entries = LinkedHashMap<String, V>()
     map.forEach { (k, v) ->
-      put(k, v)
+      val cacheKey = cacheKey(k)
+      versions.increment(cacheKey.serialized)
+      cache.put(cacheKey, CompletableFuture.completedFuture(v))
+      entries[cacheKey.serialized] = v
     }
-    directRedisCache.putAll(map)
+    directRedisCache.doPutAll(entries)
+    broadcast(entries.keys)
   }
 
   override suspend fun invalidate(key: K) {
-    throw UnsupportedOperationException("MultiLevelRedisLoadingCache unsupported invalidate")
+    val cacheKey = cacheKey(key)
+    invalidateMemory(listOf(cacheKey.serialized))
+    directRedisCache.doInvalidate(cacheKey.serialized)
+    broadcast(listOf(cacheKey.serialized))
   }
 
   override suspend fun invalidateAll(keys: Iterable<K>) {
-    throw UnsupportedOperationException("MultiLevelRedisLoadingCache unsupported invalidateAll")
+    val cacheKeys = keys.map { cacheKey(it) }
+    val redisKeys = cacheKeys.map { it.serialized }
+    invalidateMemory(redisKeys)
+    directRedisCache.doInvalidateAll(redisKeys)
+    broadcast(redisKeys)
+  }
+
+  private fun cacheKey(key: K) = CacheKey(key, directRedisCache.redisKey(key))
+
+  /**
+   * 从redis批量读取并写入本地缓存, 返回写入数量.
+   * 预热写入的条目没有原始key, 刷新时只会重新读取redis
+   */
+  internal suspend fun warmUp(redisKeys: List<String>, concurrency: Int): Int {
+    val versions = redisKeys.associateWith { versions.get(it) }
+    val values = directRedisCache.doGetAllByRedisKeys(redisKeys, concurrency)
+    val synchronous = cache.synchronous()
+    return values.count { (redisKey, value) ->
+      val cacheKey = CacheKey<K>(null, redisKey)
+      this.versions.putIfCurrent(redisKey, versions[redisKey]!!, {
+        synchronous.asMap().putIfAbsent(cacheKey, value)
+      }) { synchronous.invalidate(cacheKey) }
+    }
+  }
+
+  /** 本地缓存中访问频率最高的redis key */
+  internal fun hottestKeys(limit: Int): List<String> {
+    return cache.synchronous().policy().eviction()
+      .map { eviction -> eviction.hottest(limit).keys.map { it.serialized } }
+      .orElse(emptyList())
+  }
+
+  /**
+   * 失效本地缓存, 先递增版本号再删除条目.
+   * 本地缓存的key按照redis key比较, 因此不需要原始key
+   */
+  private fun invalidateMemory(redisKeys: Collection<String>) {
+    redisKeys.forEach { versions.increment(it) }
+    cache.synchronous().invalidateAll(redisKeys.map { CacheKey<K>(null, it) })
   }
 
+  /** 可能错过了失效消息, 清空本地缓存 */
+  private fun invalidateMemory() {
+    versions.incrementAll()
+    cache.synchronous().invalidateAll()
+  }
+
+  /** 通知其他节点失效本地缓存 */
+  private fun broadcast(serializeKeys: Collection<String>) {
+    if (invalidationBus != null && invalidationChannel != null && serializeKeys.isNotEmpty()) {
+      invalidationBus.publish(invalidationChannel, serializeKeys)
+    }
+  }
+
+  /** 单个key从redis加载, 批量加载时通过一次MGET读取redis, 未命中的key再交由批量加载函数处理 */
+  private inner class Loader : AsyncCacheLoader<CacheKey<K>, V> {
+    override fun asyncLoad(key: CacheKey<K>, executor: Executor): CompletableFuture<out V> {
+      val k = key.key ?: return mono { directRedisCache.doGetIfPresent(key.serialized) }.toFuture()
+      return mono { directRedisCache.doGet(k, key.serialized, block) }.toFuture()
+    }
+
+    override fun asyncLoadAll(
+      keys: Set<CacheKey<K>>,
+      executor: Executor
+    ): CompletableFuture<out Map<out CacheKey<K>, V>> {
+      return mono {
+        val cacheKeys = keys.associateBy { it.key!! }
+        val redisKeys = keys.associate { it.key!! to it.serialized }
+        val values = directRedisCache.doGetAll(redisKeys, batchBlock)
+        values.mapKeys { (k, _) -> cacheKeys[k]!! }
+      }.toFuture()
+    }
+  }
+
+  /** 本地缓存的过期时间跟随redis过期时间的随机范围, 避免同一批写入的本地缓存同时过期 */
+  private inner class MemoryExpiry : Expiry<CacheKey<K>, V> {
+    override fun expireAfterCreate(key: CacheKey<K>, value: V, currentTime: Long): Long {
+      return directRedisCache.memoryTimeout(timeout).toNanos()
+    }
+
+    override fun expireAfterUpdate(
+      key: CacheKey<K>,
+      value: V,
+      currentTime: Long,
+      currentDuration: Long
+    ): Long {
+      return directRedisCache.memoryTimeout(timeout).toNanos()
+    }
+
+    override fun expireAfterRead(
+      key: CacheKey<K>,
+      value: V,
+      currentTime: Long,
+      currentDuration: Long
+    ): Long {
+      return currentDuration
+    }
+  }
 }
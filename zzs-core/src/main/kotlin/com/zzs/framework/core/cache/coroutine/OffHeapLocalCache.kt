@@ -0,0 +1,195 @@
+package com.zzs.framework.core.cache.coroutine
+
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import java.nio.ByteBuffer
+import java.time.Duration
+import kotlin.math.max
+import kotlin.math.min
+
+/**
+ * 在堆外内存中保存序列化(及压缩)后的值, 命中时复制回堆内并反序列化.
+ *
+ * 创建时一次性分配 `maxBytes` 的堆外内存并切分为固定大小的页, 每个值占用若干页, 条目被淘汰、失效或替换时页立即归还,
+ * 不依赖GC回收堆外内存. 本地缓存的容量不再影响老年代大小, 代价是每次命中都需要一次反序列化.
+ *
+ * 为保证新值总能分配到页, 容量中预留了单个值的最大占用, 超过该大小的值不会保存到本地缓存.
+ *
+ * @param maxBytes 堆外内存的总字节数
+ * @param pageSize 页大小, 值按页向上取整占用内存
+ * @author 宋志宗 on 2026/10/17
+ */
+internal class OffHeapLocalCache<V : Any>(
+  maxBytes: Long,
+  timeout: Duration,
+  private val encoder: (V) -> ByteArray,
+  private val decoder: (ByteArray) -> V,
+  recordStats: Boolean,
+  pageSize: Int = DEFAULT_PAGE_SIZE
+) : LocalCache<V> {
+  companion object {
+    const val DEFAULT_PAGE_SIZE = 256
+  }
+
+  private val pages = OffHeapPages(maxBytes, pageSize)
+
+  /** 单个值最多占用的页数, 同时也是容量中为新值预留的页数 */
+  private val maxEntryPages = max(1, min(pages.pageCount / 16, OffHeapPages.SLAB_BYTES / pageSize))
+  private val cache: Cache<String, OffHeapEntry>
+
+  init {
+    require(pages.pageCount > 1) { "maxBytes is too small" }
+    val maxWeight = (pages.pageCount - maxEntryPages).toLong() * pageSize
+    val builder = Caffeine.newBuilder()
+      .expireAfterWrite(timeout)
+      .maximumWeight(maxWeight)
+      // 在当前线程中同步执行淘汰和移除回调, 保证淘汰后的页立即可用
+      .executor(Runnable::run)
+    if (recordStats) {
+      builder.recordStats()
+    }
+    cache = builder
+      .weigher { _: String, entry: OffHeapEntry -> entry.pages.size * pageSize }
+      .removalListener { _: String?, entry: OffHeapEntry?, _ -> entry?.let { pages.free(it) } }
+      .build()
+  }
+
+  override fun getIfPresent(redisKey: String): V? {
+    val entry = cache.getIfPresent(redisKey) ?: return null
+    val bytes = pages.read(entry)
+    // 复制期间条目被移除时页可能已经被其他值复用, 读取到的内容不可信
+    if (entry.released) {
+      return null
+    }
+    return decoder.invoke(bytes)
+  }
+
+  override fun put(redisKey: String, value: V) {
+    val bytes = encoder.invoke(value)
+    val entry = if (pages.pagesOf(bytes.size) > maxEntryPages) null else pages.allocate(bytes)
+    if (entry == null) {
+      // 无法保存新值时也不能继续保留旧值
+      cache.invalidate(redisKey)
+      return
+    }
+    cache.put(redisKey, entry)
+  }
+
+  override fun putAll(values: Map<String, V>) {
+    values.forEach { (redisKey, value) -> put(redisKey, value) }
+  }
+
+  override fun invalidate(redisKey: String) = cache.invalidate(redisKey)
+
+  override fun invalidateAll(redisKeys: Iterable<String>) = cache.invalidateAll(redisKeys)
+
+  override fun invalidateAll() = cache.invalidateAll()
+
+  override fun hottestKeys(limit: Int): List<String> {
+    return cache.policy().eviction().map { it.hottest(limit).keys.toList() }.orElse(emptyList())
+  }
+
+  override fun monitor(metrics: RedisCacheMetrics) = metrics.monitor(cache)
+
+  /** 空闲的页数量 */
+  internal fun freePages(): Int = pages.freeCount()
+}
+
+/**
+ * 保存在堆外内存中的值
+ *
+ * @param pages  占用的页编号
+ * @param length 值的字节数
+ */
+internal class OffHeapEntry(val pages: IntArray, val length: Int) {
+  /** 页已经归还, 不能再读取 */
+  @Volatile
+  var released = false
+}
+
+/**
+ * 预先分配的堆外内存页池, 由若干个不超过 [SLAB_BYTES] 的 direct buffer 组成.
+ * 读写都使用绝对位置, 不同页之间的并发访问互不影响
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+internal class OffHeapPages(maxBytes: Long, private val pageSize: Int) {
+  companion object {
+    const val SLAB_BYTES = 64 * 1024 * 1024
+  }
+
+  val pageCount: Int
+  private val pagesPerSlab: Int
+  private val slabs: Array<ByteBuffer>
+  private val freePages: IntArray
+  private var freeCount: Int
+
+  init {
+    require(pageSize > 0 && SLAB_BYTES % pageSize == 0) { "pageSize must be a divisor of $SLAB_BYTES" }
+    pageCount = ((maxBytes + pageSize - 1) / pageSize).coerceAtMost(Int.MAX_VALUE.toLong()).toInt()
+    pagesPerSlab = SLAB_BYTES / pageSize
+    val slabCount = (pageCount + pagesPerSlab - 1) / pagesPerSlab
+    slabs = Array(slabCount) { i ->
+      val pages = min(pagesPerSlab, pageCount - i * pagesPerSlab)
+      ByteBuffer.allocateDirect(pages * pageSize)
+    }
+    freePages = IntArray(pageCount) { pageCount - 1 - it }
+    freeCount = pageCount
+  }
+
+  fun pagesOf(length: Int) = max(1, (length + pageSize - 1) / pageSize)
+
+  /** 分配页并写入值, 空闲页不足时返回null */
+  fun allocate(bytes: ByteArray): OffHeapEntry? {
+    val count = pagesOf(bytes.size)
+    val allocated = IntArray(count)
+    synchronized(this) {
+      if (freeCount < count) {
+        return null
+      }
+      for (i in 0 until count) {
+        allocated[i] = freePages[--freeCount]
+      }
+    }
+    var offset = 0
+    for (page in allocated) {
+      val length = min(pageSize, bytes.size - offset)
+      if (length > 0) {
+        slab(page).put(position(page), bytes, offset, length)
+      }
+      offset += length
+    }
+    return OffHeapEntry(allocated, bytes.size)
+  }
+
+  fun read(entry: OffHeapEntry): ByteArray {
+    val bytes = ByteArray(entry.length)
+    var offset = 0
+    for (page in entry.pages) {
+      val length = min(pageSize, bytes.size - offset)
+      if (length > 0) {
+        slab(page).get(position(page), bytes, offset, length)
+      }
+      offset += length
+    }
+    return bytes
+  }
+
+  fun free(entry: OffHeapEntry) {
+    synchronized(this) {
+      if (entry.released) {
+        return
+      }
+      entry.released = true
+      for (page in entry.pages) {
+        freePages[freeCount++] = page
+      }
+    }
+  }
+
+  fun freeCount(): Int = synchronized(this) { freeCount }
+
+  private fun slab(page: Int) = slabs[page / pagesPerSlab]
+
+  private fun position(page: Int) = (page % pagesPerSlab) * pageSize
+}
@@ -7,8 +7,25 @@ interface RedisCache<K : Any, V : Any> {
 
   suspend fun getIfPresent(key: K): V?
 
+  /**
+   * 批量获取缓存中已存在的值, 不存在的key不会出现在返回结果中
+   *
+   * @param keys key列表
+   * @return key -> value
+   */
+  suspend fun getAll(keys: Iterable<K>): Map<K, V>
+
   suspend fun get(key: K, block: suspend (K) -> V?): V?
 
+  /**
+   * 批量获取, 缓存未命中的key通过一次 [block] 调用批量加载并写入缓存
+   *
+   * @param keys  key列表
+   * @param block 批量加载函数, 入参为缓存未命中的key
+   * @return key -> value
+   */
+  suspend fun getAll(keys: Iterable<K>, block: suspend (Collection<K>) -> Map<K, V>): Map<K, V>
+
   suspend fun put(key: K, v: V)
 
   suspend fun putAll(map: Map<K, V>)
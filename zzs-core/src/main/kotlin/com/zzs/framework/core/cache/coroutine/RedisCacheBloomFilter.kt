@@ -0,0 +1,191 @@
+package com.zzs.framework.core.cache.coroutine
+
+import kotlinx.coroutines.*
+import kotlinx.coroutines.channels.Channel
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import java.time.Duration
+import java.util.concurrent.atomic.AtomicLongArray
+import kotlin.math.ceil
+import kotlin.math.ln
+import kotlin.math.max
+import kotlin.math.roundToInt
+
+/**
+ * 命名空间级别的布隆过滤器, 用于拦截一定不存在的key, 避免为其访问redis、执行加载函数以及写入空值占位符.
+ *
+ * 过滤器保存在本地内存中, 通过 [seeder] 全量构建, 构建完成之前所有查询都会放行.
+ * 写入缓存的key会增量加入过滤器, 并通过 [RedisCacheInvalidationBus] 同步给其他节点.
+ * 按照 [rebuildInterval] 定期重建, 以发现不经过缓存新增的key并清理已删除的key.
+ * 同步订阅中断时可能错过其他节点新增的key, 此时过滤器会失效放行, 并立即触发重建.
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+internal class RedisCacheBloomFilter(
+  private val name: String,
+  private val expectedInsertions: Long,
+  private val fpp: Double,
+  private val rebuildInterval: Duration,
+  private val seeder: suspend () -> Iterable<String>,
+  private val bus: RedisCacheInvalidationBus?,
+  private val channel: String?
+) {
+  companion object {
+    private val log: Logger = LoggerFactory.getLogger(RedisCacheBloomFilter::class.java)
+    private val RETRY_INTERVAL = Duration.ofSeconds(10)
+  }
+
+  private val scope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+  private val rebuildSignal = Channel<Unit>(Channel.CONFLATED)
+
+  /** 当前生效的过滤器, 为null表示尚未完成构建 */
+  @Volatile
+  private var current: BloomFilter? = null
+
+  /** 重建过程中新加入的key需要同时写入正在构建的过滤器 */
+  @Volatile
+  private var building: BloomFilter? = null
+
+  init {
+    if (bus != null && channel != null) {
+      bus.subscribe(channel, { reset() }) { keys -> keys.forEach { addLocal(it) } }
+    }
+    scope.launch {
+      while (isActive) {
+        val success = try {
+          rebuild()
+          true
+        } catch (e: CancellationException) {
+          throw e
+        } catch (e: Exception) {
+          log.error("构建缓存布隆过滤器出现异常: {}", name, e)
+          false
+        }
+        val interval = if (success) rebuildInterval else minOf(rebuildInterval, RETRY_INTERVAL)
+        withTimeoutOrNull(interval.toMillis()) { rebuildSignal.receive() }
+      }
+    }
+  }
+
+  /** 过滤器是否已经完成首次构建 */
+  val ready get() = current != null
+
+  /**
+   * key是否可能存在, 过滤器未完成构建时始终返回true
+   *
+   * @param key redis key
+   */
+  fun mightContain(key: String): Boolean {
+    val filter = current ?: return true
+    return filter.mightContain(key)
+  }
+
+  /**
+   * 加入key并通知其他节点
+   *
+   * @param keys redis key
+   */
+  fun addAll(keys: Collection<String>) {
+    if (keys.isEmpty()) {
+      return
+    }
+    keys.forEach { addLocal(it) }
+    if (bus != null && channel != null) {
+      bus.publish(channel, keys)
+    }
+  }
+
+  /** 可能错过了其他节点新增的key, 在重建完成前放行所有查询 */
+  private fun reset() {
+    current = null
+    rebuildSignal.trySend(Unit)
+    log.warn("缓存布隆过滤器同步中断, 重建完成前不做拦截: {}", name)
+  }
+
+  private fun addLocal(key: String) {
+    current?.put(key)
+    building?.put(key)
+  }
+
+  private suspend fun rebuild() {
+    val filter = BloomFilter(expectedInsertions, fpp)
+    building = filter
+    try {
+      var count = 0L
+      seeder.invoke().forEach {
+        filter.put(it)
+        count++
+      }
+      current = filter
+      log.info("缓存布隆过滤器构建完成: {}, 元素数量: {}", name, count)
+    } finally {
+      building = null
+    }
+  }
+}
+
+/**
+ * 基于 [AtomicLongArray] 的线程安全布隆过滤器, 使用双重哈希生成各个哈希位置
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+internal class BloomFilter(expectedInsertions: Long, fpp: Double) {
+  private val bits: AtomicLongArray
+  private val bitSize: Long
+  private val hashFunctions: Int
+
+  init {
+    require(expectedInsertions > 0) { "expectedInsertions must be positive" }
+    require(fpp > 0 && fpp < 1) { "fpp must be in (0, 1)" }
+    val ln2 = ln(2.0)
+    val optimalBits = ceil(-expectedInsertions * ln(fpp) / (ln2 * ln2)).toLong()
+    val words = ((max(optimalBits, 64L) + 63) / 64).coerceAtMost(Int.MAX_VALUE.toLong()).toInt()
+    bits = AtomicLongArray(words)
+    bitSize = words.toLong() * 64
+    hashFunctions = max(1, (bitSize.toDouble() / expectedInsertions * ln2).roundToInt())
+  }
+
+  fun put(key: String) {
+    val hash1 = hash(key)
+    val hash2 = mix(hash1 + -0x61c8864680b583ebL)
+    for (i in 0 until hashFunctions) {
+      val index = ((hash1 + i * hash2) and Long.MAX_VALUE) % bitSize
+      val word = (index ushr 6).toInt()
+      val mask = 1L shl index.toInt()
+      while (true) {
+        val old = bits.get(word)
+        if (old and mask != 0L || bits.compareAndSet(word, old, old or mask)) {
+          break
+        }
+      }
+    }
+  }
+
+  fun mightContain(key: String): Boolean {
+    val hash1 = hash(key)
+    val hash2 = mix(hash1 + -0x61c8864680b583ebL)
+    for (i in 0 until hashFunctions) {
+      val index = ((hash1 + i * hash2) and Long.MAX_VALUE) % bitSize
+      if (bits.get((index ushr 6).toInt()) and (1L shl index.toInt()) == 0L) {
+        return false
+      }
+    }
+    return true
+  }
+
+  /** FNV-1a 64位哈希后再进行一次混淆 */
+  private fun hash(key: String): Long {
+    var hash = -0x340d631b7bdddcdbL
+    for (c in key) {
+      hash = (hash xor c.code.toLong()) * 0x100000001b3L
+    }
+    return mix(hash)
+  }
+
+  private fun mix(value: Long): Long {
+    var h = value
+    h = (h xor (h ushr 33)) * -0xae502812aa7333L
+    h = (h xor (h ushr 33)) * -0x3b314601e57a13adL
+    return h xor (h ushr 33)
+  }
+}
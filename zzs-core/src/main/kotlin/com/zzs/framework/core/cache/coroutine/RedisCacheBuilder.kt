@@ -1,10 +1,32 @@
 package com.zzs.framework.core.cache.coroutine
 
+import com.zzs.framework.core.cache.blocking.BlockingRedisCache
+import com.zzs.framework.core.cache.blocking.BlockingRedisCacheAdapter
+import com.zzs.framework.core.cache.blocking.BlockingRedisLoadingCache
+import com.zzs.framework.core.cache.blocking.BlockingRedisLoadingCacheAdapter
+import com.zzs.framework.core.cache.compress.Lz4ValueCompressor
+import com.zzs.framework.core.cache.compress.ValueCompression
+import com.zzs.framework.core.cache.compress.ValueCompressor
+import com.zzs.framework.core.cache.serialize.ByteValueSerializer
 import com.zzs.framework.core.cache.serialize.KeySerializer
 import com.zzs.framework.core.cache.serialize.StringKeySerializer
+import com.zzs.framework.core.cache.reactive.ReactiveRedisCache
+import com.zzs.framework.core.cache.reactive.ReactiveRedisCacheAdapter
+import com.zzs.framework.core.cache.reactive.ReactiveRedisLoadingCache
+import com.zzs.framework.core.cache.reactive.ReactiveRedisLoadingCacheAdapter
 import com.zzs.framework.core.cache.serialize.ValueSerializer
+import com.zzs.framework.core.spring.RedisTemplateUtils
+import io.micrometer.core.instrument.MeterRegistry
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.reactor.awaitSingleOrNull
+import kotlinx.coroutines.withContext
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import org.springframework.data.redis.core.ReactiveRedisTemplate
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate
+import reactor.core.publisher.Mono
 import java.time.Duration
+import java.util.function.Function
 import kotlin.math.max
 
 /**
@@ -12,31 +34,91 @@ import kotlin.math.max
  */
 class RedisCacheBuilder<K : Any, V : Any>(
   private val prefix: String?,
-  private val valueSerializer: ValueSerializer<V>,
-  private val redisTemplate: ReactiveStringRedisTemplate
+  private val valueSerializer: ByteValueSerializer<V>,
+  private val redisTemplate: ReactiveStringRedisTemplate,
+  private val valueTemplate: ReactiveRedisTemplate<String, ByteArray>,
+  private val invalidationBus: RedisCacheInvalidationBus? = null
 ) {
+  constructor(
+    prefix: String?,
+    valueSerializer: ValueSerializer<V>,
+    redisTemplate: ReactiveStringRedisTemplate,
+    invalidationBus: RedisCacheInvalidationBus? = null
+  ) : this(
+    prefix, ByteValueSerializer.utf8(valueSerializer), redisTemplate,
+    RedisTemplateUtils.byteArrayTemplate(redisTemplate.connectionFactory), invalidationBus
+  )
+
+  companion object {
+    private val log: Logger = LoggerFactory.getLogger(RedisCacheBuilder::class.java)
+  }
+
   private var multiLevel = false
   private var memoryCacheSize: Long? = null
   private var memoryCacheTimeout: Duration? = null
+  private var memoryCacheWeight: Long? = null
+  private var memoryCacheWeigher: ((V) -> Int)? = null
+  private var offHeapBytes: Long? = null
+  private var broadcastInvalidation = true
   private var cacheNull = false
+  private var hashTag = false
   private var nullTimeout: Duration? = null
   private var lock = false
   private var lockTimeout: Duration? = null
+  private var lockWaitTimeout: Duration? = null
   private var timeoutSeconds = 2592000L
   private var maxTimeoutSeconds: Long? = null
+  private var refreshAfterWrite: Duration? = null
+  private var xfetchBeta: Double? = null
+  private var hashBuckets: Int? = null
+  private var hashSweepInterval = Duration.ofMinutes(5)
+  private var loaderTimeout: Duration? = null
+  private var circuitBreakerThreshold: Int? = null
+  private var circuitBreakerOpenDuration = Duration.ofSeconds(10)
+  private var staleIfError: Duration? = null
+  private var compression: ValueCompression? = null
+  private var meterRegistry: MeterRegistry? = null
   private var keySerializer: KeySerializer<K> = StringKeySerializer()
+  private var bloomExpectedInsertions = 0L
+  private var bloomFpp = 0.01
+  private var bloomRebuildInterval: Duration = Duration.ofHours(1)
+  private var bloomSeeder: (suspend () -> Iterable<K>)? = null
+  private var warmUp = false
+  private var warmUpLimit = 1000
+  private var warmUpConcurrency = 4
+  private var hotKeyPersistInterval = Duration.ofMinutes(5)
+  private var hotKeyStore: HotKeyStore? = null
+  private var hotKeyThreshold: Int? = null
+  private var hotKeyWindow = Duration.ofSeconds(1)
+  private var hotKeyCacheSize = 100L
+  private var hotKeyTtl = Duration.ofSeconds(1)
+
+  /** 由 [RedisCacheBuilderFactory] 设置, 使预热在应用就绪之前完成 */
+  internal var warmUpRegistry: RedisCacheWarmUpRegistry? = null
 
   fun keySerializer(keySerializer: KeySerializer<K>): RedisCacheBuilder<K, V> {
     this.keySerializer = keySerializer
     return this
   }
 
+  /**
+   * 使用redis集群的hash tag包裹命名空间, 生成的key形如 `prefix:{namespace}:key`,
+   * 同一命名空间的所有key(包括锁)会落在同一个哈希槽, 批量操作不再需要拆分.
+   * 代价是整个命名空间的数据和访问压力都集中在一个节点上, 修改此选项会导致已有的缓存失效
+   */
+  @JvmOverloads
+  fun hashTag(enabled: Boolean = true): RedisCacheBuilder<K, V> {
+    this.hashTag = enabled
+    return this
+  }
+
   fun cacheNull(timeout: Duration): RedisCacheBuilder<K, V> {
     this.cacheNull = true
     this.nullTimeout = timeout
     return this
   }
 
+  @JvmOverloads
   fun multiLevel(
     size: Long = 1000L,
     timeout: Duration = Duration.ofSeconds(30)
@@ -47,9 +129,54 @@ class RedisCacheBuilder<K : Any, V : Any>(
     return this
   }
 
-  fun enableLock(timeout: Duration): RedisCacheBuilder<K, V> {
+  /**
+   * 按权重而不是数量限制多级缓存的本地缓存容量, 需要同时开启 [multiLevel], 此时其中的size参数不再生效.
+   * 值的大小差异较大时, 按数量限制无法预估本地缓存占用的堆内存
+   *
+   * @param maximumWeight 本地缓存的最大总权重
+   * @param weigher       单个值的权重, 默认为值在redis中保存的字节数, 读写redis时已经得到, 不会重复序列化
+   */
+  @JvmOverloads
+  fun memoryWeight(maximumWeight: Long, weigher: ((V) -> Int)? = null): RedisCacheBuilder<K, V> {
+    this.memoryCacheWeight = maximumWeight
+    this.memoryCacheWeigher = weigher
+    return this
+  }
+
+  /**
+   * 多级缓存的本地缓存改为在堆外内存中保存序列化(及压缩)后的值, 命中时再反序列化, 需要同时开启 [multiLevel].
+   * 本地缓存容量较大时不再撑大老年代, 代价是每次命中都需要反序列化, 设置后 [memoryWeight] 不再生效.
+   * 自动加载的缓存开启后本地缓存不再支持后台刷新, redis中值的软过期刷新不受影响.
+   *
+   * 堆外内存在创建缓存时一次性分配并按页复用, 需要保证 `-XX:MaxDirectMemorySize` 足够容纳所有开启的缓存.
+   * 容量的1/16预留给新写入的值, 超过该大小的值不会保存到本地缓存
+   *
+   * @param maxBytes 分配的堆外内存字节数
+   */
+  fun offHeap(maxBytes: Long): RedisCacheBuilder<K, V> {
+    this.offHeapBytes = maxBytes
+    return this
+  }
+
+  /**
+   * 是否在写入和失效时通知其他节点失效本地缓存, 默认开启, 仅对多级缓存生效
+   */
+  fun broadcastInvalidation(enabled: Boolean): RedisCacheBuilder<K, V> {
+    this.broadcastInvalidation = enabled
+    return this
+  }
+
+  /**
+   * 缓存未命中时使用分布式锁保护加载过程, 同一时间只有一个节点执行加载逻辑
+   *
+   * @param timeout     锁的超时时间
+   * @param waitTimeout 锁被其他节点持有时等待其加载结果的最长时间, 超时后返回null
+   */
+  @JvmOverloads
+  fun enableLock(timeout: Duration, waitTimeout: Duration = timeout): RedisCacheBuilder<K, V> {
     this.lock = true
     this.lockTimeout = timeout
+    this.lockWaitTimeout = waitTimeout
     return this
   }
 
@@ -64,6 +191,181 @@ class RedisCacheBuilder<K : Any, V : Any>(
     return this
   }
 
+  /**
+   * 写入超过指定时间后, 读取时先返回当前值, 同时在后台重新加载.
+   * 刷新时间应小于过期时间, 仅对携带加载函数的读取生效
+   */
+  fun refreshAfterWrite(refreshAfterWrite: Duration): RedisCacheBuilder<K, V> {
+    this.refreshAfterWrite = refreshAfterWrite
+    return this
+  }
+
+  /**
+   * 开启XFetch概率提前过期: 加载时记录耗时, 读取时以 `delta * beta * ln(rand)` 决定是否在过期前提前刷新.
+   * 加载越慢、越接近过期, 提前刷新的概率越大, 各节点独立决策, 不需要任何协调. 仅对携带加载函数的读取生效
+   *
+   * @param beta 大于1时倾向于更早刷新, 小于1时倾向于更晚刷新
+   */
+  @JvmOverloads
+  fun xfetch(beta: Double = 1.0): RedisCacheBuilder<K, V> {
+    this.xfetchBeta = beta
+    return this
+  }
+
+  /**
+   * 加载函数的超时时间, 超时后抛出 [RedisCacheLoadException], 同时计入熔断失败次数
+   */
+  fun loaderTimeout(timeout: Duration): RedisCacheBuilder<K, V> {
+    this.loaderTimeout = timeout
+    return this
+  }
+
+  /**
+   * 开启加载函数熔断: 当前节点上连续失败 [failureThreshold] 次后熔断 [openDuration],
+   * 期间未命中的读取直接抛出 [RedisCacheLoadException] 而不再调用加载函数; 熔断结束后放行一次探测.
+   * 配合 [staleIfError] 使用时熔断期间返回过期的值
+   */
+  @JvmOverloads
+  fun circuitBreaker(
+    failureThreshold: Int = 5,
+    openDuration: Duration = Duration.ofSeconds(10)
+  ): RedisCacheBuilder<K, V> {
+    require(failureThreshold > 0) { "failureThreshold must be positive" }
+    this.circuitBreakerThreshold = failureThreshold
+    this.circuitBreakerOpenDuration = openDuration
+    return this
+  }
+
+  /**
+   * 值过期后在redis中继续保留 [maxStale], 期间的读取视为未命中并重新加载,
+   * 加载失败、超时、被熔断或等待分布式锁超时时返回过期的值, 而不是抛出异常.
+   *
+   * 值中会记录逻辑过期时间, redis中的实际过期时间为 `expireAfterWrite + maxStale`.
+   * 批量加载只有在全部未命中的key都存在过期值时才会降级
+   */
+  fun staleIfError(maxStale: Duration): RedisCacheBuilder<K, V> {
+    this.staleIfError = maxStale
+    return this
+  }
+
+  /**
+   * 将命名空间下的值按照key的哈希值分散保存到 [buckets] 个redis hash中, 而不是每个key一个字符串.
+   * 大量小value时可以显著减少每个key的内存开销, 并使hash使用紧凑编码.
+   *
+   * 字段级过期依赖redis 7.4及以上版本的HPEXPIRE. 低版本依赖值中携带的过期时间戳做逻辑过期,
+   * 过期字段在读取时删除, 未被再次读取的过期字段由每隔 [sweepInterval] 执行一次的HSCAN清理任务删除.
+   * 分布式锁仍然使用独立的字符串key. 切换存储方式后原有的缓存数据不再可见
+   *
+   * @param buckets       hash的数量, 建议使每个hash的字段数量在几百以内以保持紧凑编码
+   * @param sweepInterval redis 7.4以下版本清理过期字段的间隔
+   */
+  @JvmOverloads
+  fun hashBuckets(buckets: Int, sweepInterval: Duration = Duration.ofMinutes(5)): RedisCacheBuilder<K, V> {
+    require(buckets > 0) { "buckets must be positive" }
+    require(!sweepInterval.isNegative && !sweepInterval.isZero) { "sweepInterval must be positive" }
+    this.hashBuckets = buckets
+    this.hashSweepInterval = sweepInterval
+    return this
+  }
+
+  /**
+   * 序列化后的值长度达到阈值时进行压缩后再写入redis, 压缩与未压缩的值可以共存
+   *
+   * @param threshold  压缩阈值(字节)
+   * @param compressor 压缩算法, 默认LZ4, 需要引入 lz4-java
+   */
+  @JvmOverloads
+  fun compress(
+    threshold: Int = 4096,
+    compressor: ValueCompressor = Lz4ValueCompressor.instance()
+  ): RedisCacheBuilder<K, V> {
+    this.compression = ValueCompression(compressor, threshold)
+    return this
+  }
+
+  /**
+   * 使用布隆过滤器拦截一定不存在的key, 被拦截的key直接返回null, 不会访问redis和执行加载函数.
+   *
+   * 过滤器由 [seeder] 返回的全部key构建, 构建完成前不做拦截; 通过缓存写入或失效的key会增量加入过滤器.
+   * 其他途径新增的数据在下次重建前对缓存不可见, 因此 [seeder] 应返回数据源中的全部key,
+   * 并且必须定期重建. 节点间同步key的订阅中断后同样不做拦截, 直到重新构建完成.
+   *
+   * @param expectedInsertions 预期的key数量
+   * @param fpp                期望的误判率
+   * @param rebuildInterval    重建间隔, 即其他途径新增的key最长的不可见时间
+   * @param seeder             返回全部存在的key
+   */
+  fun bloomFilter(
+    expectedInsertions: Long,
+    fpp: Double = 0.01,
+    rebuildInterval: Duration = Duration.ofHours(1),
+    seeder: suspend () -> Iterable<K>
+  ): RedisCacheBuilder<K, V> {
+    require(!rebuildInterval.isNegative && !rebuildInterval.isZero) { "rebuildInterval must be positive" }
+    this.bloomExpectedInsertions = expectedInsertions
+    this.bloomFpp = fpp
+    this.bloomRebuildInterval = rebuildInterval
+    this.bloomSeeder = seeder
+    return this
+  }
+
+  /**
+   * 启动时预热本地缓存, 仅对多级缓存生效.
+   *
+   * 运行期间定期将本地缓存中访问频率最高的key保存到 [store], 启动时读取这些key并批量从redis加载到本地缓存.
+   * 只对通过 [RedisCacheBuilderFactory] 创建的构建器生效, 缓存在应用就绪之前完成预热, 定期保存的任务随工厂销毁而停止.
+   *
+   * @param limit           预热的最大key数量
+   * @param concurrency     预热时同时执行的批量读取数量
+   * @param persistInterval 保存热点key的间隔
+   * @param store           热点key的存储, 默认保存在redis中, 可以使用 [FileHotKeyStore] 保存到本地快照文件
+   */
+  @JvmOverloads
+  fun warmUp(
+    limit: Int = 1000,
+    concurrency: Int = 4,
+    persistInterval: Duration = Duration.ofMinutes(5),
+    store: HotKeyStore? = null
+  ): RedisCacheBuilder<K, V> {
+    this.warmUp = true
+    this.warmUpLimit = limit
+    this.warmUpConcurrency = concurrency
+    this.hotKeyPersistInterval = persistInterval
+    this.hotKeyStore = store
+    return this
+  }
+
+  /**
+   * 探测热点key并自动放入本地缓存, 仅对未开启 [multiLevel] 的缓存生效.
+   *
+   * 热点key的本地缓存不接收其他节点的失效通知, [ttl] 即为其他节点写入后本节点可能读到旧值的最长时间.
+   *
+   * @param threshold 时间窗口内的访问次数达到此值时视为热点key
+   * @param window    统计访问次数的时间窗口
+   * @param maxSize   热点key本地缓存的最大数量
+   * @param ttl       热点key本地缓存的过期时间
+   */
+  @JvmOverloads
+  fun hotKeys(
+    threshold: Int = 1000,
+    window: Duration = Duration.ofSeconds(1),
+    maxSize: Long = 100,
+    ttl: Duration = Duration.ofSeconds(1)
+  ): RedisCacheBuilder<K, V> {
+    this.hotKeyThreshold = threshold
+    this.hotKeyWindow = window
+    this.hotKeyCacheSize = maxSize
+    this.hotKeyTtl = ttl
+    return this
+  }
+
+  /**
+   * 记录缓存指标, 指标说明见 [RedisCacheMetrics]
+   */
+  fun metrics(meterRegistry: MeterRegistry): RedisCacheBuilder<K, V> {
+    this.meterRegistry = meterRegistry
+    return this
+  }
 
   /**
    * 构建redis缓存
@@ -72,20 +374,225 @@ class RedisCacheBuilder<K : Any, V : Any>(
    */
   fun build(namespace: String): RedisCache<K, V> {
     val redisPrefix = generateRedisPrefix(namespace)
+    val metrics = meterRegistry?.let { RedisCacheMetrics(it, namespace) }
+    val directRedisCache = buildDirect(redisPrefix, metrics)
+    if (!multiLevel) {
+      enableHotKeys(directRedisCache)
+      return directRedisCache
+    }
+    val bus = if (broadcastInvalidation) invalidationBus else null
+    val cache = MultiLevelRedisCache(
+      offHeapBytes ?: memoryCacheWeight ?: memoryCacheSize ?: 1000,
+      memoryCacheTimeout ?: Duration.ofSeconds(30),
+      directRedisCache, bus, bus?.channel(redisPrefix), metrics,
+      memoryWeigher(directRedisCache), offHeapBytes != null
+    )
+    registerWarmUp(redisPrefix, object : WarmableCache {
+      override suspend fun warmUp(redisKeys: List<String>, concurrency: Int) =
+        cache.warmUp(redisKeys, concurrency)
+
+      override fun hottestKeys(limit: Int) = cache.hottestKeys(limit)
+    })
+    return cache
+  }
+
+  /**
+   * 构建自动加载的redis缓存
+   *
+   * @param namespace 命名空间
+   * @param block     缓存未命中时的加载函数
+   * @author 宋志宗 on 2026/10/17
+   */
+  fun build(namespace: String, block: suspend (K) -> V?): RedisLoadingCache<K, V> {
+    return build(namespace, block, null)
+  }
+
+  /**
+   * 构建自动加载的redis缓存, 批量获取时未命中的key通过一次 [batchBlock] 调用加载
+   *
+   * @param namespace  命名空间
+   * @param block      单个key未命中时的加载函数
+   * @param batchBlock 批量获取时的加载函数, 返回结果中不存在的key视为数据不存在; 为null时逐个调用 [block]
+   * @author 宋志宗 on 2026/10/17
+   */
+  fun build(
+    namespace: String,
+    block: suspend (K) -> V?,
+    batchBlock: (suspend (Collection<K>) -> Map<K, V>)?
+  ): RedisLoadingCache<K, V> {
+    val redisPrefix = generateRedisPrefix(namespace)
+    val metrics = meterRegistry?.let { RedisCacheMetrics(it, namespace) }
+    val directRedisCache = buildDirect(redisPrefix, metrics)
+    if (!multiLevel) {
+      enableHotKeys(directRedisCache)
+      return DirectRedisLoadingCache(directRedisCache, block, batchBlock)
+    }
+    val bus = if (broadcastInvalidation) invalidationBus else null
+    val maxBytes = offHeapBytes
+    if (maxBytes != null) {
+      val cache = MultiLevelRedisCache(
+        maxBytes, memoryCacheTimeout ?: Duration.ofSeconds(30),
+        directRedisCache, bus, bus?.channel(redisPrefix), metrics, offHeap = true
+      )
+      registerWarmUp(redisPrefix, object : WarmableCache {
+        override suspend fun warmUp(redisKeys: List<String>, concurrency: Int) =
+          cache.warmUp(redisKeys, concurrency)
+
+        override fun hottestKeys(limit: Int) = cache.hottestKeys(limit)
+      })
+      return RedisCacheLoadingAdapter(cache, block, batchBlock)
+    }
+    val cache = MultiLevelRedisLoadingCache(
+      memoryCacheWeight ?: memoryCacheSize ?: 1000,
+      memoryCacheTimeout ?: Duration.ofSeconds(30),
+      directRedisCache, block, refreshAfterWrite, metrics,
+      batchBlock, bus, bus?.channel(redisPrefix), memoryWeigher(directRedisCache)
+    )
+    registerWarmUp(redisPrefix, object : WarmableCache {
+      override suspend fun warmUp(redisKeys: List<String>, concurrency: Int) =
+        cache.warmUp(redisKeys, concurrency)
+
+      override fun hottestKeys(limit: Int) = cache.hottestKeys(limit)
+    })
+    return cache
+  }
+
+  /**
+   * 构建基于 [Mono] 的redis缓存, 与 [build] 共用同一套实现
+   *
+   * @author 宋志宗 on 2026/10/17
+   */
+  fun buildReactive(namespace: String): ReactiveRedisCache<K, V> {
+    return ReactiveRedisCacheAdapter(build(namespace))
+  }
+
+  /**
+   * 构建基于 [Mono] 的自动加载redis缓存
+   *
+   * @param namespace 命名空间
+   * @param loader    缓存未命中时的加载函数, 返回空的 [Mono] 表示数据不存在
+   * @author 宋志宗 on 2026/10/17
+   */
+  fun buildReactive(namespace: String, loader: Function<K, Mono<V>>): ReactiveRedisLoadingCache<K, V> {
+    return ReactiveRedisLoadingCacheAdapter(build(namespace) { loader.apply(it).awaitSingleOrNull() })
+  }
+
+  /**
+   * 构建基于 [Mono] 的自动加载redis缓存, 批量获取时未命中的key通过一次 [batchLoader] 调用加载
+   *
+   * @param namespace   命名空间
+   * @param loader      单个key未命中时的加载函数, 返回空的 [Mono] 表示数据不存在
+   * @param batchLoader 批量获取时的加载函数, 返回结果中不存在的key视为数据不存在
+   * @author 宋志宗 on 2026/10/17
+   */
+  fun buildReactive(
+    namespace: String,
+    loader: Function<K, Mono<V>>,
+    batchLoader: Function<Collection<K>, Mono<Map<K, V>>>
+  ): ReactiveRedisLoadingCache<K, V> {
+    return ReactiveRedisLoadingCacheAdapter(
+      build(namespace, { loader.apply(it).awaitSingleOrNull() }) {
+        batchLoader.apply(it).awaitSingleOrNull() ?: emptyMap()
+      }
+    )
+  }
+
+  /**
+   * 构建阻塞式的redis缓存, 与 [build] 共用同一套实现
+   *
+   * @author 宋志宗 on 2026/10/17
+   */
+  fun buildBlocking(namespace: String): BlockingRedisCache<K, V> {
+    return BlockingRedisCacheAdapter(build(namespace))
+  }
+
+  /**
+   * 构建阻塞式的自动加载redis缓存
+   *
+   * @param namespace 命名空间
+   * @param loader    缓存未命中时的加载函数, 返回null表示数据不存在.
+   *                  本地缓存加载, 后台刷新和批量加载都会在协程中调用, 因此统一在 [Dispatchers.IO] 上执行
+   * @author 宋志宗 on 2026/10/17
+   */
+  fun buildBlocking(namespace: String, loader: Function<K, V?>): BlockingRedisLoadingCache<K, V> {
+    return BlockingRedisLoadingCacheAdapter(build(namespace) { withContext(Dispatchers.IO) { loader.apply(it) } })
+  }
+
+  /**
+   * 构建阻塞式的自动加载redis缓存, 批量获取时未命中的key通过一次 [batchLoader] 调用加载
+   *
+   * @param namespace   命名空间
+   * @param loader      单个key未命中时的加载函数, 返回null表示数据不存在
+   * @param batchLoader 批量获取时的加载函数, 返回结果中不存在的key视为数据不存在
+   *                    两个加载函数都在 [Dispatchers.IO] 上执行
+   * @author 宋志宗 on 2026/10/17
+   */
+  fun buildBlocking(
+    namespace: String,
+    loader: Function<K, V?>,
+    batchLoader: Function<Collection<K>, Map<K, V>>
+  ): BlockingRedisLoadingCache<K, V> {
+    return BlockingRedisLoadingCacheAdapter(
+      build(namespace, { withContext(Dispatchers.IO) { loader.apply(it) } }) {
+        withContext(Dispatchers.IO) { batchLoader.apply(it) }
+      }
+    )
+  }
+
+  private fun buildDirect(redisPrefix: String, metrics: RedisCacheMetrics?): DirectRedisCache<K, V> {
     val directRedisCache = DirectRedisCache(
       redisPrefix, lock, cacheNull, keySerializer, valueSerializer,
       nullTimeout ?: Duration.ofSeconds(30),
       lockTimeout ?: Duration.ofSeconds(30),
-      timeoutSeconds, maxTimeoutSeconds, redisTemplate
+      lockWaitTimeout ?: lockTimeout ?: Duration.ofSeconds(30),
+      timeoutSeconds, maxTimeoutSeconds, refreshAfterWrite, xfetchBeta, hashBuckets, hashSweepInterval,
+      loaderTimeout, staleIfError, compression,
+      metrics, redisTemplate, valueTemplate
     )
-    if (!multiLevel) {
-      return directRedisCache
+    circuitBreakerThreshold?.let {
+      directRedisCache.circuitBreaker = LoaderCircuitBreaker(it, circuitBreakerOpenDuration)
     }
-    return MultiLevelRedisCache(
-      memoryCacheSize ?: 1000,
-      memoryCacheTimeout ?: Duration.ofSeconds(30),
-      directRedisCache
+    val seeder = bloomSeeder
+    if (seeder != null) {
+      directRedisCache.bloomFilter = RedisCacheBloomFilter(
+        redisPrefix, bloomExpectedInsertions, bloomFpp, bloomRebuildInterval,
+        { seeder.invoke().map { directRedisCache.redisKey(it) } },
+        invalidationBus, invalidationBus?.bloomChannel(redisPrefix)
+      )
+    }
+    return directRedisCache
+  }
+
+  /** 未设置 [memoryWeight] 时返回null, 按数量限制本地缓存 */
+  private fun memoryWeigher(directRedisCache: DirectRedisCache<K, V>): ((V) -> Int)? {
+    if (memoryCacheWeight == null) {
+      return null
+    }
+    memoryCacheWeigher?.let { return it }
+    directRedisCache.enableSizeHints()
+    return directRedisCache::serializedSize
+  }
+
+  private fun enableHotKeys(directRedisCache: DirectRedisCache<K, V>) {
+    val threshold = hotKeyThreshold ?: return
+    directRedisCache.hotKeyCache = HotKeyCache(threshold, hotKeyWindow, hotKeyCacheSize, hotKeyTtl)
+  }
+
+  private fun registerWarmUp(redisPrefix: String, cache: WarmableCache) {
+    if (!warmUp) {
+      return
+    }
+    // 没有工厂管理生命周期时无法停止定期保存的任务, 也无法在关闭时保存热点key
+    val registry = warmUpRegistry
+    if (registry == null) {
+      log.warn("缓存预热只对通过RedisCacheBuilderFactory创建的构建器生效, 已跳过: {}", redisPrefix)
+      return
+    }
+    val store = hotKeyStore ?: RedisHotKeyStore(redisTemplate, "cache_hot_keys:$redisPrefix")
+    val warmUp = RedisCacheWarmUp(
+      redisPrefix, store, warmUpLimit, warmUpConcurrency, hotKeyPersistInterval, cache
     )
+    registry.register(warmUp)
   }
 
   private fun generateRedisPrefix(namespace: String): String {
@@ -96,6 +603,6 @@ class RedisCacheBuilder<K : Any, V : Any>(
     } else {
       "${this.prefix}:"
     }
-    return "$prefix$namespace"
+    return if (hashTag) "$prefix{$namespace}" else "$prefix$namespace"
   }
 }
@@ -1,6 +1,12 @@
 package com.zzs.framework.core.cache.coroutine
 
+import com.zzs.framework.core.cache.serialize.ByteValueSerializer
 import com.zzs.framework.core.cache.serialize.ValueSerializer
+import com.zzs.framework.core.spring.RedisTemplateUtils
+import kotlinx.coroutines.runBlocking
+import org.springframework.beans.factory.DisposableBean
+import org.springframework.boot.ApplicationArguments
+import org.springframework.boot.ApplicationRunner
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate
 
 /**
@@ -9,9 +15,30 @@ import org.springframework.data.redis.core.ReactiveStringRedisTemplate
 class RedisCacheBuilderFactory(
   private val prefix: String?,
   private val redisTemplate: ReactiveStringRedisTemplate
-) {
+) : ApplicationRunner, DisposableBean {
+  private val valueTemplate = RedisTemplateUtils.byteArrayTemplate(redisTemplate.connectionFactory)
+  private val invalidationBus = RedisCacheInvalidationBus(redisTemplate)
+  private val warmUpRegistry = RedisCacheWarmUpRegistry()
 
   fun <K : Any, V : Any> newBuilder(valueSerializer: ValueSerializer<V>): RedisCacheBuilder<K, V> {
-    return RedisCacheBuilder(prefix, valueSerializer, redisTemplate)
+    return newBuilder(ByteValueSerializer.utf8(valueSerializer))
+  }
+
+  fun <K : Any, V : Any> newBuilder(valueSerializer: ByteValueSerializer<V>): RedisCacheBuilder<K, V> {
+    val builder = RedisCacheBuilder<K, V>(
+      prefix, valueSerializer, redisTemplate, valueTemplate, invalidationBus
+    )
+    builder.warmUpRegistry = warmUpRegistry
+    return builder
+  }
+
+  /** 在应用就绪之前完成所有已创建缓存的预热 */
+  override fun run(args: ApplicationArguments) {
+    runBlocking { warmUpRegistry.warmUpAll() }
+  }
+
+  override fun destroy() {
+    runBlocking { warmUpRegistry.stop() }
+    invalidationBus.destroy()
   }
 }
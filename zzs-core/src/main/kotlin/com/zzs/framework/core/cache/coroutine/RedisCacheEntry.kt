@@ -0,0 +1,129 @@
+package com.zzs.framework.core.cache.coroutine
+
+import com.zzs.framework.core.cache.CacheUtils
+import java.util.concurrent.ThreadLocalRandom
+import kotlin.math.ln
+
+/**
+ * 缓存值在redis中的存储格式.
+ *
+ * 启用软过期后, 序列化后的值前面会附带一段头部: `::$$::_entry_::<refreshAt>::$$::<value>`,
+ * 启用XFetch或stale-if-error后头部还会带上加载耗时与过期时间: `::$$::_entry_::<refreshAt>:<delta>:<expireAt>::$$::<value>`.
+ * 未携带头部的值视为永不需要刷新, 因此各种格式可以共存.
+ * 解码时不会复制value部分, 通过 [offset] 和 [length] 引用原始字节数组.
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+internal class RedisCacheEntry(
+  /** redis中存储的原始字节 */
+  val bytes: ByteArray,
+  /** 序列化后的值在 [bytes] 中的起始位置 */
+  val offset: Int,
+  /** 需要刷新的时间戳(毫秒) */
+  val refreshAt: Long,
+  /** 加载耗时(毫秒), 0表示未记录 */
+  val delta: Long = 0,
+  /** 过期时间戳(毫秒) */
+  val expireAt: Long = Long.MAX_VALUE
+) {
+  companion object {
+    private val PREFIX = "::$$::_entry_::".toByteArray(Charsets.UTF_8)
+    private val SEPARATOR = "::$$::".toByteArray(Charsets.UTF_8)
+    private val NULL_VALUE = CacheUtils.NULL_VALUE.toByteArray(Charsets.UTF_8)
+
+    /** 空值占位符 */
+    fun nullValue(): ByteArray = NULL_VALUE
+
+    /** 是否为空值占位符 */
+    fun isNullValue(raw: ByteArray?) = raw != null && raw.contentEquals(NULL_VALUE)
+
+    /** redis中是否不存在有效值 */
+    fun isAbsent(raw: ByteArray?) = raw == null || raw.isEmpty()
+
+    /** [expireAt] 为0时只写入 [refreshAt] */
+    fun encode(value: ByteArray, refreshAt: Long, delta: Long = 0, expireAt: Long = 0): ByteArray {
+      val header = if (expireAt > 0) {
+        "$refreshAt:$delta:$expireAt".toByteArray(Charsets.UTF_8)
+      } else {
+        refreshAt.toString().toByteArray(Charsets.UTF_8)
+      }
+      val result = ByteArray(PREFIX.size + header.size + SEPARATOR.size + value.size)
+      var position = 0
+      PREFIX.copyInto(result, position)
+      position += PREFIX.size
+      header.copyInto(result, position)
+      position += header.size
+      SEPARATOR.copyInto(result, position)
+      position += SEPARATOR.size
+      value.copyInto(result, position)
+      return result
+    }
+
+    fun decode(raw: ByteArray): RedisCacheEntry {
+      if (!startsWith(raw, PREFIX, 0)) {
+        return RedisCacheEntry(raw, 0, Long.MAX_VALUE)
+      }
+      val numbers = LongArray(3)
+      var count = 0
+      var position = PREFIX.size
+      while (count < numbers.size) {
+        val start = position
+        var number = 0L
+        while (position < raw.size && raw[position] in '0'.code.toByte()..'9'.code.toByte()) {
+          number = number * 10 + (raw[position] - '0'.code.toByte())
+          position++
+        }
+        if (position == start) {
+          return RedisCacheEntry(raw, 0, Long.MAX_VALUE)
+        }
+        numbers[count++] = number
+        if (position >= raw.size || raw[position] != ':'.code.toByte() || startsWith(raw, SEPARATOR, position)) {
+          break
+        }
+        position++
+      }
+      if (!startsWith(raw, SEPARATOR, position) || count == 2) {
+        return RedisCacheEntry(raw, 0, Long.MAX_VALUE)
+      }
+      val offset = position + SEPARATOR.size
+      if (count == 1) {
+        return RedisCacheEntry(raw, offset, numbers[0])
+      }
+      return RedisCacheEntry(raw, offset, numbers[0], numbers[1], numbers[2])
+    }
+
+    private fun startsWith(raw: ByteArray, prefix: ByteArray, offset: Int): Boolean {
+      if (raw.size - offset < prefix.size) {
+        return false
+      }
+      for (i in prefix.indices) {
+        if (raw[offset + i] != prefix[i]) {
+          return false
+        }
+      }
+      return true
+    }
+  }
+
+  /** 序列化后的值的长度 */
+  val length get() = bytes.size - offset
+
+  fun needsRefresh(now: Long = System.currentTimeMillis()) = refreshAt <= now
+
+  /** 是否已经超过逻辑过期时间, 仅stale-if-error模式下redis中会保留逻辑过期的值 */
+  fun isExpired(now: Long = System.currentTimeMillis()) = expireAt <= now
+
+  /**
+   * XFetch概率提前过期: 当 `now - delta * beta * ln(rand) >= expireAt` 时需要刷新,
+   * 加载越慢、越接近过期, 提前刷新的概率越大
+   *
+   * @param beta 大于1时倾向于更早刷新, 小于1时倾向于更晚刷新
+   */
+  fun needsEarlyRefresh(beta: Double, now: Long = System.currentTimeMillis()): Boolean {
+    if (delta <= 0 || expireAt == Long.MAX_VALUE) {
+      return false
+    }
+    val random = ThreadLocalRandom.current().nextDouble()
+    return now - delta * beta * ln(random) >= expireAt
+  }
+}
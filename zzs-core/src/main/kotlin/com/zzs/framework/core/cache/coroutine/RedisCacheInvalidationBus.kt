@@ -0,0 +1,154 @@
+package com.zzs.framework.core.cache.coroutine
+
+import com.zzs.framework.core.json.JsonUtils
+import kotlinx.coroutines.*
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.reactor.awaitSingleOrNull
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.DisposableBean
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate
+import org.springframework.data.redis.listener.ChannelTopic
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer
+import reactor.core.Disposable
+import reactor.util.retry.Retry
+import java.time.Duration
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * 多级缓存的本地缓存失效广播, 基于redis pub/sub实现, 同时用于同步布隆过滤器新增的key.
+ *
+ * 每个命名空间使用一个独立的频道, 发布的key会按照 [batchSize] 和 [linger] 攒批去重后再发送,
+ * 节点会忽略自身发布的消息. 订阅异常中断后会按照退避间隔重新订阅,
+ * 中断期间的消息无法找回, 因此出错和重新订阅成功时都会通知订阅方重置本地状态.
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+class RedisCacheInvalidationBus(
+  private val redisTemplate: ReactiveStringRedisTemplate,
+  private val batchSize: Int = 256,
+  private val linger: Duration = Duration.ofMillis(10)
+) : DisposableBean {
+  companion object {
+    private val log: Logger = LoggerFactory.getLogger(RedisCacheInvalidationBus::class.java)
+    private const val CHANNEL_PREFIX = "cache_invalidation:"
+    private const val BLOOM_CHANNEL_PREFIX = "cache_bloom:"
+    private val RESUBSCRIBE_MIN_BACKOFF = Duration.ofSeconds(1)
+    private val RESUBSCRIBE_MAX_BACKOFF = Duration.ofSeconds(30)
+  }
+
+  private val nodeId = UUID.randomUUID().toString().replace("-", "")
+  private val scope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+  private val publishers = ConcurrentHashMap<String, Channel<String>>()
+  private val subscriptions = CopyOnWriteArrayList<Disposable>()
+
+  @Volatile
+  private var container: ReactiveRedisMessageListenerContainer? = null
+
+  /** 命名空间对应的广播频道 */
+  fun channel(redisPrefix: String) = "$CHANNEL_PREFIX$redisPrefix"
+
+  /** 命名空间对应的布隆过滤器同步频道 */
+  fun bloomChannel(redisPrefix: String) = "$BLOOM_CHANNEL_PREFIX$redisPrefix"
+
+  /**
+   * 订阅频道, 收到其他节点发布的key时回调 [listener]
+   *
+   * @param channel  频道名称
+   * @param onReset  订阅中断以及重新订阅成功时回调, 订阅方应当丢弃可能错过失效消息的本地状态
+   * @param listener 失效回调, 入参为redis key
+   */
+  fun subscribe(channel: String, onReset: () -> Unit = {}, listener: (List<String>) -> Unit) {
+    val subscribed = AtomicBoolean(false)
+    val disposable = container().receive(ChannelTopic.of(channel))
+      .doOnSubscribe {
+        if (!subscribed.compareAndSet(false, true)) {
+          reset(channel, onReset)
+        }
+      }
+      .retryWhen(
+        Retry.backoff(Long.MAX_VALUE, RESUBSCRIBE_MIN_BACKOFF)
+          .maxBackoff(RESUBSCRIBE_MAX_BACKOFF)
+          .doBeforeRetry { signal ->
+            log.warn("缓存失效频道订阅异常, 第{}次重新订阅: {}", signal.totalRetries() + 1, channel, signal.failure())
+            reset(channel, onReset)
+          }
+      )
+      .subscribe({ message ->
+        try {
+          val payload = JsonUtils.parseList(message.message, String::class.java)
+          if (payload.isEmpty() || payload[0] == nodeId) {
+            return@subscribe
+          }
+          listener.invoke(payload.subList(1, payload.size))
+        } catch (e: Exception) {
+          log.warn("处理缓存失效消息出现异常: {}", channel, e)
+        }
+      }, { e -> log.error("缓存失效频道订阅异常终止: {}", channel, e) })
+    subscriptions.add(disposable)
+  }
+
+  /**
+   * 广播需要失效的key, 消息会被异步攒批发送
+   *
+   * @param channel 频道名称
+   * @param keys    redis key
+   */
+  fun publish(channel: String, keys: Iterable<String>) {
+    val publisher = publishers.computeIfAbsent(channel) { startPublisher(it) }
+    keys.forEach { publisher.trySend(it) }
+  }
+
+  override fun destroy() {
+    scope.cancel()
+    subscriptions.forEach { it.dispose() }
+    container?.destroy()
+  }
+
+  private fun reset(channel: String, onReset: () -> Unit) {
+    try {
+      onReset.invoke()
+    } catch (e: Exception) {
+      log.warn("重置缓存失效订阅方出现异常: {}", channel, e)
+    }
+  }
+
+  private fun startPublisher(channel: String): Channel<String> {
+    val publisher = Channel<String>(Channel.UNLIMITED)
+    scope.launch {
+      while (isActive) {
+        val keys = LinkedHashSet<String>()
+        keys.add(publisher.receive())
+        delay(linger.toMillis())
+        while (keys.size < batchSize) {
+          val result = publisher.tryReceive()
+          if (!result.isSuccess) {
+            break
+          }
+          keys.add(result.getOrThrow())
+        }
+        val payload = ArrayList<String>(keys.size + 1)
+        payload.add(nodeId)
+        payload.addAll(keys)
+        try {
+          redisTemplate.convertAndSend(channel, JsonUtils.toJsonString(payload)).awaitSingleOrNull()
+        } catch (e: Exception) {
+          log.warn("发布缓存失效消息出现异常: {}", channel, e)
+        }
+      }
+    }
+    return publisher
+  }
+
+  private fun container(): ReactiveRedisMessageListenerContainer {
+    container?.let { return it }
+    synchronized(this) {
+      container?.let { return it }
+      val connectionFactory = redisTemplate.connectionFactory
+      return ReactiveRedisMessageListenerContainer(connectionFactory).also { container = it }
+    }
+  }
+}
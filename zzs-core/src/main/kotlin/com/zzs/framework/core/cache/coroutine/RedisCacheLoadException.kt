@@ -0,0 +1,8 @@
+package com.zzs.framework.core.cache.coroutine
+
+/**
+ * 缓存加载函数超时或被熔断时抛出
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+class RedisCacheLoadException(message: String, cause: Throwable? = null) : RuntimeException(message, cause)
@@ -0,0 +1,28 @@
+package com.zzs.framework.core.cache.coroutine
+
+/**
+ * 将 [RedisCache] 与加载函数组合为 [RedisLoadingCache]
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+internal class RedisCacheLoadingAdapter<K : Any, V : Any>(
+  private val cache: RedisCache<K, V>,
+  private val block: suspend (K) -> V?,
+  batchBlock: (suspend (Collection<K>) -> Map<K, V>)? = null
+) : RedisLoadingCache<K, V> {
+  private val batchBlock = batchBlock ?: block.toBatchLoader()
+
+  override suspend fun getIfPresent(key: K): V? = cache.getIfPresent(key)
+
+  override suspend fun get(key: K): V? = cache.get(key, block)
+
+  override suspend fun getAll(keys: Iterable<K>): Map<K, V> = cache.getAll(keys, batchBlock)
+
+  override suspend fun put(key: K, v: V) = cache.put(key, v)
+
+  override suspend fun putAll(map: Map<K, V>) = cache.putAll(map)
+
+  override suspend fun invalidate(key: K) = cache.invalidate(key)
+
+  override suspend fun invalidateAll(keys: Iterable<K>) = cache.invalidateAll(keys)
+}
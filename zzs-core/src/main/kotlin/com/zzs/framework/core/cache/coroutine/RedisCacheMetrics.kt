@@ -0,0 +1,96 @@
+package com.zzs.framework.core.cache.coroutine
+
+import com.github.benmanes.caffeine.cache.Cache
+import io.micrometer.core.instrument.Counter
+import io.micrometer.core.instrument.MeterRegistry
+import io.micrometer.core.instrument.Tags
+import io.micrometer.core.instrument.Timer
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics
+import java.util.concurrent.TimeUnit
+
+/**
+ * 缓存指标, 所有指标均带有 namespace 标签, 命中情况通过 level 标签区分本地缓存(l1)与redis.
+ *
+ * - `zzs.cache.requests`: 读取次数, 标签 level, result(hit/miss), redis中缓存的空值标记计为命中
+ * - `zzs.cache.load`: 加载函数耗时, 标签 result(success/failure)
+ * - `zzs.cache.lock`: 分布式锁竞争情况, 标签 result(acquired/contended/timeout)
+ * - `zzs.cache.load.rejected`: 加载函数被熔断拒绝的次数
+ * - `zzs.cache.stale`: 加载失败时返回过期值的次数
+ * - `zzs.cache.serialize` / `zzs.cache.deserialize`: 序列化与反序列化耗时
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+class RedisCacheMetrics(
+  private val registry: MeterRegistry,
+  private val namespace: String
+) {
+  private val tags = Tags.of("namespace", namespace)
+  private val l1Hit = requests("l1", "hit")
+  private val l1Miss = requests("l1", "miss")
+  private val redisHit = requests("redis", "hit")
+  private val redisMiss = requests("redis", "miss")
+  private val loadSuccess = timer("zzs.cache.load", "result", "success")
+  private val loadFailure = timer("zzs.cache.load", "result", "failure")
+  private val lockAcquired = counter("zzs.cache.lock", "result", "acquired")
+  private val lockContended = counter("zzs.cache.lock", "result", "contended")
+  private val lockTimeout = counter("zzs.cache.lock", "result", "timeout")
+  private val loadRejected = Counter.builder("zzs.cache.load.rejected").tags(tags).register(registry)
+  private val staleServed = Counter.builder("zzs.cache.stale").tags(tags).register(registry)
+  private val serializeTimer = Timer.builder("zzs.cache.serialize").tags(tags).register(registry)
+  private val deserializeTimer = Timer.builder("zzs.cache.deserialize").tags(tags).register(registry)
+
+  fun l1(hits: Int, misses: Int) {
+    if (hits > 0) l1Hit.increment(hits.toDouble())
+    if (misses > 0) l1Miss.increment(misses.toDouble())
+  }
+
+  fun redis(hits: Int, misses: Int) {
+    if (hits > 0) redisHit.increment(hits.toDouble())
+    if (misses > 0) redisMiss.increment(misses.toDouble())
+  }
+
+  fun lockAcquired() = lockAcquired.increment()
+
+  fun lockContended() = lockContended.increment()
+
+  fun lockTimeout() = lockTimeout.increment()
+
+  fun loadRejected() = loadRejected.increment()
+
+  fun staleServed(count: Int = 1) = staleServed.increment(count.toDouble())
+
+  suspend fun <T> recordLoad(block: suspend () -> T): T {
+    val start = System.nanoTime()
+    try {
+      return block.invoke().also {
+        loadSuccess.record(System.nanoTime() - start, TimeUnit.NANOSECONDS)
+      }
+    } catch (e: Throwable) {
+      loadFailure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS)
+      throw e
+    }
+  }
+
+  fun recordSerialize(nanos: Long) = serializeTimer.record(nanos, TimeUnit.NANOSECONDS)
+
+  fun recordDeserialize(nanos: Long) = deserializeTimer.record(nanos, TimeUnit.NANOSECONDS)
+
+  /** 注册本地缓存的Caffeine统计指标, 缓存需要开启 recordStats */
+  fun <K, V> monitor(cache: Cache<K, V>) {
+    CaffeineCacheMetrics.monitor(registry, cache, namespace, Tags.of("level", "l1"))
+  }
+
+  private fun requests(level: String, result: String): Counter {
+    return Counter.builder("zzs.cache.requests")
+      .tags(tags).tag("level", level).tag("result", result)
+      .register(registry)
+  }
+
+  private fun counter(name: String, key: String, value: String): Counter {
+    return Counter.builder(name).tags(tags).tag(key, value).register(registry)
+  }
+
+  private fun timer(name: String, key: String, value: String): Timer {
+    return Timer.builder(name).tags(tags).tag(key, value).register(registry)
+  }
+}
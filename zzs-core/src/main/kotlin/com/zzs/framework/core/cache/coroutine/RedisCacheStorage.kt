@@ -0,0 +1,31 @@
+package com.zzs.framework.core.cache.coroutine
+
+import java.time.Duration
+
+/**
+ * 缓存值在redis中的存储方式, 读写均以带有命名空间前缀的redis key为参数
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+internal interface RedisCacheStorage {
+
+  suspend fun get(redisKey: String): ByteArray?
+
+  /**
+   * 批量读取
+   *
+   * @param redisKeys   redis key
+   * @param concurrency 同时执行的批量读取数量, 为null时不做限制
+   * @return redis key -> value, 不存在的key对应的value为null
+   */
+  suspend fun multiGet(redisKeys: List<String>, concurrency: Int? = null): Map<String, ByteArray?>
+
+  suspend fun set(redisKey: String, value: ByteArray, timeout: Duration)
+
+  /** 批量写入, 元素依次为redis key, value, 过期时间 */
+  suspend fun setAll(entries: List<Triple<String, ByteArray, Duration>>)
+
+  suspend fun delete(redisKey: String)
+
+  suspend fun deleteAll(redisKeys: Collection<String>)
+}
@@ -0,0 +1,96 @@
+package com.zzs.framework.core.cache.coroutine
+
+import kotlinx.coroutines.*
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import java.time.Duration
+
+/**
+ * 多级缓存的本地缓存预热.
+ *
+ * 预热时从 [store] 读取热点key, 批量从redis读取后写入本地缓存;
+ * 运行期间按照 [persistInterval] 定期将本地缓存中访问频率最高的key保存到 [store], 停止时再保存一次.
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+internal class RedisCacheWarmUp(
+  private val name: String,
+  private val store: HotKeyStore,
+  private val limit: Int,
+  private val concurrency: Int,
+  private val persistInterval: Duration,
+  private val cache: WarmableCache
+) {
+  companion object {
+    private val log: Logger = LoggerFactory.getLogger(RedisCacheWarmUp::class.java)
+  }
+
+  private val scope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+
+  /** 执行预热, 预热失败不影响缓存的正常使用 */
+  suspend fun warmUp() {
+    val start = System.currentTimeMillis()
+    try {
+      val redisKeys = store.load(limit)
+      if (redisKeys.isEmpty()) {
+        return
+      }
+      val count = cache.warmUp(redisKeys, concurrency)
+      val millis = System.currentTimeMillis() - start
+      log.info("缓存预热完成: {}, 热点key数量: {}, 加载数量: {}, 耗时: {}ms", name, redisKeys.size, count, millis)
+    } catch (e: CancellationException) {
+      throw e
+    } catch (e: Exception) {
+      log.warn("缓存预热出现异常: {}", name, e)
+    }
+  }
+
+  /** 开始定期保存热点key */
+  fun start() {
+    scope.launch {
+      while (isActive) {
+        delay(persistInterval.toMillis())
+        persist()
+      }
+    }
+  }
+
+  /** 停止定期保存并保存一次热点key */
+  suspend fun stop() {
+    scope.cancel()
+    persist()
+  }
+
+  private suspend fun persist() {
+    try {
+      val keys = cache.hottestKeys(limit)
+      if (keys.isNotEmpty()) {
+        store.save(keys)
+      }
+    } catch (e: CancellationException) {
+      throw e
+    } catch (e: Exception) {
+      log.warn("保存热点key出现异常: {}", name, e)
+    }
+  }
+}
+
+/**
+ * 支持预热的本地缓存
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+internal interface WarmableCache {
+
+  /**
+   * 从redis批量读取并写入本地缓存
+   *
+   * @param redisKeys   redis key
+   * @param concurrency 同时执行的批量读取数量
+   * @return 写入本地缓存的数量
+   */
+  suspend fun warmUp(redisKeys: List<String>, concurrency: Int): Int
+
+  /** 本地缓存中访问频率最高的redis key, 按照频率从高到低排列 */
+  fun hottestKeys(limit: Int): List<String>
+}
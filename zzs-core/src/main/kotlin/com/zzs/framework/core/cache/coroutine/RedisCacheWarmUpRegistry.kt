@@ -0,0 +1,50 @@
+package com.zzs.framework.core.cache.coroutine
+
+import kotlinx.coroutines.*
+import java.util.concurrent.CopyOnWriteArrayList
+
+/**
+ * 管理同一个 [RedisCacheBuilderFactory] 创建的缓存预热任务.
+ *
+ * 应用就绪之前注册的任务会在 [warmUpAll] 中统一执行, 之后注册的任务在后台立即执行,
+ * 工厂销毁时通过 [stop] 停止所有任务并保存一次热点key.
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+internal class RedisCacheWarmUpRegistry {
+  private val scope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+  private val warmUps = CopyOnWriteArrayList<RedisCacheWarmUp>()
+
+  @Volatile
+  private var started = false
+
+  fun register(warmUp: RedisCacheWarmUp) {
+    synchronized(this) {
+      warmUps.add(warmUp)
+      if (!started) {
+        return
+      }
+    }
+    scope.launch {
+      warmUp.warmUp()
+      warmUp.start()
+    }
+  }
+
+  /** 并行执行所有已注册的预热任务, 全部完成后返回 */
+  suspend fun warmUpAll() {
+    val pending = synchronized(this) {
+      started = true
+      warmUps.toList()
+    }
+    coroutineScope {
+      pending.map { async { it.warmUp() } }.awaitAll()
+    }
+    pending.forEach { it.start() }
+  }
+
+  suspend fun stop() {
+    scope.cancel()
+    warmUps.forEach { it.stop() }
+  }
+}
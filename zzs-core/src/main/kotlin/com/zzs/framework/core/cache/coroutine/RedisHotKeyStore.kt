@@ -0,0 +1,90 @@
+package com.zzs.framework.core.cache.coroutine
+
+import kotlinx.coroutines.reactor.awaitSingleOrNull
+import org.springframework.data.domain.Range
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate
+import org.springframework.data.redis.core.script.RedisScript
+import java.time.Duration
+
+/**
+ * 将热点key保存在redis的有序集合中, 只保留分数最高的 [capacity] 个key.
+ *
+ * 本地缓存只能提供按访问频率排列的key, 每个节点保存时按照排名给出 (0, 1] 的权重, 通过ZINCRBY累加到已有分数上,
+ * 因此多个节点保存的结果会合并在一起, 在多个节点上都很热的key排名更靠前.
+ * 已有分数在每次保存时按照 [halfLife] 随时间衰减, 不再被访问的key会逐渐被新的热点key替换.
+ *
+ * 衰减时间记录在 `key:decayed_at` 中, 集群模式下两者需要位于同一个slot, 因此 [key] 不含hash tag时以整个key作为hash tag.
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+class RedisHotKeyStore @JvmOverloads constructor(
+  private val redisTemplate: ReactiveStringRedisTemplate,
+  key: String,
+  private val capacity: Int = 10000,
+  private val timeout: Duration = Duration.ofDays(7),
+  private val halfLife: Duration = Duration.ofHours(6)
+) : HotKeyStore {
+  companion object {
+    /**
+     * KEYS[1]: 有序集合, KEYS[2]: 上次衰减的时间戳.
+     * ARGV[1]: 当前时间戳(毫秒), ARGV[2]: 半衰期(毫秒), ARGV[3]: 容量, ARGV[4]: 过期时间(毫秒), 之后每两个参数为 key, 权重
+     */
+    private val SAVE_SCRIPT: RedisScript<Long> = RedisScript.of(
+      """
+      local now = tonumber(ARGV[1])
+      local last = tonumber(redis.call('get', KEYS[2]))
+      if last and now > last then
+        local factor = math.pow(0.5, (now - last) / tonumber(ARGV[2]))
+        redis.call('zunionstore', KEYS[1], 1, KEYS[1], 'WEIGHTS', tostring(factor))
+      end
+      if not last or now > last then
+        last = now
+      end
+      redis.call('set', KEYS[2], tostring(last), 'PX', ARGV[4])
+      for i = 5, #ARGV, 2 do
+        redis.call('zincrby', KEYS[1], ARGV[i + 1], ARGV[i])
+      end
+      local size = redis.call('zcard', KEYS[1])
+      local capacity = tonumber(ARGV[3])
+      if size > capacity then
+        redis.call('zremrangebyrank', KEYS[1], 0, size - capacity - 1)
+      end
+      redis.call('pexpire', KEYS[1], ARGV[4])
+      return size
+      """.trimIndent(), Long::class.java
+    )
+  }
+
+  init {
+    require(capacity > 0) { "capacity must be positive" }
+    require(!halfLife.isNegative && !halfLife.isZero) { "halfLife must be positive" }
+  }
+
+  private val key = if (key.contains('{') && key.contains('}')) key else "{$key}"
+  private val decayKey = "${this.key}:decayed_at"
+
+  override suspend fun load(limit: Int): List<String> {
+    return redisTemplate.opsForZSet()
+      .reverseRange(key, Range.closed(0L, limit - 1L))
+      .collectList().awaitSingleOrNull() ?: emptyList()
+  }
+
+  override suspend fun save(keys: List<String>) {
+    if (keys.isEmpty()) {
+      return
+    }
+    val args = ArrayList<String>(4 + keys.size * 2)
+    args.add(System.currentTimeMillis().toString())
+    args.add(halfLife.toMillis().toString())
+    args.add(capacity.toString())
+    args.add(timeout.toMillis().toString())
+    keys.forEachIndexed { index, redisKey ->
+      args.add(redisKey)
+      args.add(weight(index, keys.size).toString())
+    }
+    redisTemplate.execute(SAVE_SCRIPT, listOf(key, decayKey), args).next().awaitSingleOrNull()
+  }
+
+  /** 排名第 [index] 的key的权重, 最热的key为1 */
+  private fun weight(index: Int, size: Int): Double = (size - index).toDouble() / size
+}
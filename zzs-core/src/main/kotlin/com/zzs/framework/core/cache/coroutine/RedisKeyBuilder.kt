@@ -0,0 +1,19 @@
+package com.zzs.framework.core.cache.coroutine
+
+import com.zzs.framework.core.cache.serialize.KeySerializer
+
+/**
+ * 生成带有命名空间前缀的redis key.
+ *
+ * 一次缓存操作只生成一次redis key, 并在本地缓存、redis、布隆过滤器以及失效广播之间复用.
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+internal class RedisKeyBuilder<K : Any>(
+  /** 以 `:` 结尾的前缀, 为空表示没有前缀 */
+  val prefix: String,
+  private val keySerializer: KeySerializer<K>
+) {
+
+  fun build(key: K): String = prefix + keySerializer.serialize(key)
+}
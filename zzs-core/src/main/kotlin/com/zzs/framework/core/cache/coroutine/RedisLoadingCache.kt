@@ -9,6 +9,14 @@ interface RedisLoadingCache<K : Any, V : Any> {
 
   suspend fun get(key: K): V?
 
+  /**
+   * 批量获取, 缓存未命中的key会被加载并写入缓存
+   *
+   * @param keys key列表
+   * @return key -> value, 加载结果为null的key不会出现在返回结果中
+   */
+  suspend fun getAll(keys: Iterable<K>): Map<K, V>
+
   suspend fun put(key: K, v: V)
 
   suspend fun putAll(map: Map<K, V>)
@@ -0,0 +1,46 @@
+package com.zzs.framework.core.cache.coroutine
+
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.isActive
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * 进程内的请求合并, 相同key的并发调用只有第一个调用者会执行 block, 其余调用者等待并共享其结果.
+ *
+ * block 在第一个调用者的协程上下文中执行, 如果该调用者被取消, 仍在等待的调用者会重新发起调用.
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+internal class SingleFlight<T> {
+  private val calls = ConcurrentHashMap<String, CompletableDeferred<T>>()
+
+  /** 是否有调用者正在执行key对应的 block */
+  fun isRunning(key: String): Boolean = calls.containsKey(key)
+
+  suspend fun execute(key: String, block: suspend () -> T): T {
+    while (true) {
+      val deferred = CompletableDeferred<T>()
+      val existing = calls.putIfAbsent(key, deferred)
+      if (existing == null) {
+        return try {
+          block.invoke().also { deferred.complete(it) }
+        } catch (e: Throwable) {
+          deferred.completeExceptionally(e)
+          throw e
+        } finally {
+          calls.remove(key, deferred)
+        }
+      }
+      try {
+        return existing.await()
+      } catch (e: CancellationException) {
+        // 执行者被取消而当前调用者仍然存活, 重新竞争执行权
+        if (!currentCoroutineContext().isActive) {
+          throw e
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package com.zzs.framework.core.cache.coroutine
+
+import com.zzs.framework.core.spring.RedisTemplateUtils
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.reactor.awaitSingle
+import kotlinx.coroutines.reactor.awaitSingleOrNull
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withPermit
+import org.springframework.data.redis.connection.ClusterSlotHashUtil
+import org.springframework.data.redis.connection.ReactiveStringCommands.SetCommand
+import org.springframework.data.redis.core.ReactiveRedisTemplate
+import org.springframework.data.redis.core.types.Expiration
+import reactor.core.publisher.Flux
+import java.time.Duration
+
+/**
+ * 每个缓存值保存为一个独立的redis字符串, 过期时间由redis维护
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+internal class StringRedisCacheStorage(
+  private val valueTemplate: ReactiveRedisTemplate<String, ByteArray>
+) : RedisCacheStorage {
+  companion object {
+    /** 批量操作时单条命令包含的最大key数量 */
+    private const val BATCH_SIZE = 500
+  }
+
+  private val cluster = RedisTemplateUtils.isCluster(valueTemplate.connectionFactory)
+
+  override suspend fun get(redisKey: String): ByteArray? {
+    return valueTemplate.opsForValue().get(redisKey).awaitSingleOrNull()
+  }
+
+  override suspend fun multiGet(redisKeys: List<String>, concurrency: Int?): Map<String, ByteArray?> {
+    if (redisKeys.isEmpty()) {
+      return emptyMap()
+    }
+    val semaphore = concurrency?.let { Semaphore(it.coerceAtLeast(1)) }
+    val values = coroutineScope {
+      batches(redisKeys) { it }.map { chunk ->
+        async {
+          if (semaphore == null) {
+            chunk.zip(valueTemplate.opsForValue().multiGet(chunk).awaitSingle())
+          } else {
+            semaphore.withPermit { chunk.zip(valueTemplate.opsForValue().multiGet(chunk).awaitSingle()) }
+          }
+        }
+      }.awaitAll()
+    }
+    val result = HashMap<String, ByteArray?>(redisKeys.size)
+    values.forEach { chunk -> chunk.forEach { (redisKey, value) -> result[redisKey] = value } }
+    return result
+  }
+
+  override suspend fun set(redisKey: String, value: ByteArray, timeout: Duration) {
+    valueTemplate.opsForValue().set(redisKey, value, timeout).awaitSingleOrNull()
+  }
+
+  /** 每批数据以一组SET命令的形式提交 */
+  override suspend fun setAll(entries: List<Triple<String, ByteArray, Duration>>) {
+    if (entries.isEmpty()) {
+      return
+    }
+    val context = valueTemplate.serializationContext
+    coroutineScope {
+      batches(entries) { it.first }.map { chunk ->
+        async {
+          valueTemplate.execute { connection ->
+            val commands = Flux.fromIterable(chunk).map { (redisKey, value, timeout) ->
+              SetCommand.set(context.keySerializationPair.write(redisKey))
+                .value(context.valueSerializationPair.write(value))
+                .expiring(Expiration.from(timeout))
+            }
+            connection.stringCommands().set(commands)
+          }.then().awaitSingleOrNull()
+        }
+      }.awaitAll()
+    }
+  }
+
+  override suspend fun delete(redisKey: String) {
+    valueTemplate.opsForValue().delete(redisKey).awaitSingleOrNull()
+  }
+
+  override suspend fun deleteAll(redisKeys: Collection<String>) {
+    if (redisKeys.isEmpty()) {
+      return
+    }
+    coroutineScope {
+      batches(redisKeys.toList()) { it }.map { chunk ->
+        async { valueTemplate.delete(*chunk.toTypedArray()).awaitSingleOrNull() }
+      }.awaitAll()
+    }
+  }
+
+  /**
+   * 将批量操作拆分为多个批次, 每批最多 [BATCH_SIZE] 个key.
+   * 集群模式下同一批次中的key属于同一个哈希槽, 各批次并行执行, 多key命令不会跨节点.
+   */
+  private fun <T> batches(items: List<T>, redisKey: (T) -> String): List<List<T>> {
+    if (!cluster) {
+      return items.chunked(BATCH_SIZE)
+    }
+    return items.groupBy { ClusterSlotHashUtil.calculateSlot(redisKey(it)) }
+      .values.flatMap { it.chunked(BATCH_SIZE) }
+  }
+}
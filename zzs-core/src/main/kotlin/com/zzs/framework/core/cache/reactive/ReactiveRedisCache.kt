@@ -0,0 +1,42 @@
+package com.zzs.framework.core.cache.reactive
+
+import reactor.core.publisher.Mono
+import java.util.function.Function
+
+/**
+ * 基于 [Mono] 的redis缓存, 与 [com.zzs.framework.core.cache.coroutine.RedisCache] 共用同一套实现,
+ * 包括批量操作、请求合并以及本地缓存. 值不存在时返回空的 [Mono].
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+interface ReactiveRedisCache<K : Any, V : Any> {
+
+  fun getIfPresent(key: K): Mono<V>
+
+  /**
+   * 批量获取缓存中已存在的值, 不存在的key不会出现在返回结果中
+   *
+   * @param keys key列表
+   * @return key -> value
+   */
+  fun getAll(keys: Iterable<K>): Mono<Map<K, V>>
+
+  fun get(key: K, loader: Function<K, Mono<V>>): Mono<V>
+
+  /**
+   * 批量获取, 缓存未命中的key通过一次 [loader] 调用批量加载并写入缓存
+   *
+   * @param keys   key列表
+   * @param loader 批量加载函数, 入参为缓存未命中的key
+   * @return key -> value
+   */
+  fun getAll(keys: Iterable<K>, loader: Function<Collection<K>, Mono<Map<K, V>>>): Mono<Map<K, V>>
+
+  fun put(key: K, value: V): Mono<Void>
+
+  fun putAll(map: Map<K, V>): Mono<Void>
+
+  fun invalidate(key: K): Mono<Void>
+
+  fun invalidateAll(keys: Iterable<K>): Mono<Void>
+}
@@ -0,0 +1,59 @@
+package com.zzs.framework.core.cache.reactive
+
+import com.zzs.framework.core.cache.coroutine.RedisCache
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.reactor.awaitSingleOrNull
+import kotlinx.coroutines.reactor.mono
+import reactor.core.publisher.Mono
+import java.util.function.Function
+
+/**
+ * 将协程缓存适配为 [ReactiveRedisCache].
+ *
+ * 协程在订阅线程上以 [Dispatchers.Unconfined] 启动, 挂起后直接在redis客户端的回调线程上恢复, 不会额外切换线程.
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+class ReactiveRedisCacheAdapter<K : Any, V : Any>(
+  private val cache: RedisCache<K, V>
+) : ReactiveRedisCache<K, V> {
+
+  override fun getIfPresent(key: K): Mono<V> {
+    return mono(Dispatchers.Unconfined) { cache.getIfPresent(key) }
+  }
+
+  override fun getAll(keys: Iterable<K>): Mono<Map<K, V>> {
+    return mono(Dispatchers.Unconfined) { cache.getAll(keys) }
+  }
+
+  override fun get(key: K, loader: Function<K, Mono<V>>): Mono<V> {
+    return mono(Dispatchers.Unconfined) {
+      cache.get(key) { loader.apply(it).awaitSingleOrNull() }
+    }
+  }
+
+  override fun getAll(
+    keys: Iterable<K>,
+    loader: Function<Collection<K>, Mono<Map<K, V>>>
+  ): Mono<Map<K, V>> {
+    return mono(Dispatchers.Unconfined) {
+      cache.getAll(keys) { loader.apply(it).awaitSingleOrNull() ?: emptyMap() }
+    }
+  }
+
+  override fun put(key: K, value: V): Mono<Void> {
+    return mono(Dispatchers.Unconfined) { cache.put(key, value) }.then()
+  }
+
+  override fun putAll(map: Map<K, V>): Mono<Void> {
+    return mono(Dispatchers.Unconfined) { cache.putAll(map) }.then()
+  }
+
+  override fun invalidate(key: K): Mono<Void> {
+    return mono(Dispatchers.Unconfined) { cache.invalidate(key) }.then()
+  }
+
+  override fun invalidateAll(keys: Iterable<K>): Mono<Void> {
+    return mono(Dispatchers.Unconfined) { cache.invalidateAll(keys) }.then()
+  }
+}
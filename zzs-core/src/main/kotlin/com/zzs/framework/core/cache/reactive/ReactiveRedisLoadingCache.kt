@@ -0,0 +1,31 @@
+package com.zzs.framework.core.cache.reactive
+
+import reactor.core.publisher.Mono
+
+/**
+ * 基于 [Mono] 的自动加载redis缓存, 与 [com.zzs.framework.core.cache.coroutine.RedisLoadingCache] 共用同一套实现
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+interface ReactiveRedisLoadingCache<K : Any, V : Any> {
+
+  fun getIfPresent(key: K): Mono<V>
+
+  fun get(key: K): Mono<V>
+
+  /**
+   * 批量获取, 缓存未命中的key会被加载并写入缓存
+   *
+   * @param keys key列表
+   * @return key -> value, 加载结果为空的key不会出现在返回结果中
+   */
+  fun getAll(keys: Iterable<K>): Mono<Map<K, V>>
+
+  fun put(key: K, value: V): Mono<Void>
+
+  fun putAll(map: Map<K, V>): Mono<Void>
+
+  fun invalidate(key: K): Mono<Void>
+
+  fun invalidateAll(keys: Iterable<K>): Mono<Void>
+}
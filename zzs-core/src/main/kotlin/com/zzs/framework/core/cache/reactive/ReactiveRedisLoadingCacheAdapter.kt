@@ -0,0 +1,44 @@
+package com.zzs.framework.core.cache.reactive
+
+import com.zzs.framework.core.cache.coroutine.RedisLoadingCache
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.reactor.mono
+import reactor.core.publisher.Mono
+
+/**
+ * 将协程自动加载缓存适配为 [ReactiveRedisLoadingCache], 线程模型同 [ReactiveRedisCacheAdapter]
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+class ReactiveRedisLoadingCacheAdapter<K : Any, V : Any>(
+  private val cache: RedisLoadingCache<K, V>
+) : ReactiveRedisLoadingCache<K, V> {
+
+  override fun getIfPresent(key: K): Mono<V> {
+    return mono(Dispatchers.Unconfined) { cache.getIfPresent(key) }
+  }
+
+  override fun get(key: K): Mono<V> {
+    return mono(Dispatchers.Unconfined) { cache.get(key) }
+  }
+
+  override fun getAll(keys: Iterable<K>): Mono<Map<K, V>> {
+    return mono(Dispatchers.Unconfined) { cache.getAll(keys) }
+  }
+
+  override fun put(key: K, value: V): Mono<Void> {
+    return mono(Dispatchers.Unconfined) { cache.put(key, value) }.then()
+  }
+
+  override fun putAll(map: Map<K, V>): Mono<Void> {
+    return mono(Dispatchers.Unconfined) { cache.putAll(map) }.then()
+  }
+
+  override fun invalidate(key: K): Mono<Void> {
+    return mono(Dispatchers.Unconfined) { cache.invalidate(key) }.then()
+  }
+
+  override fun invalidateAll(keys: Iterable<K>): Mono<Void> {
+    return mono(Dispatchers.Unconfined) { cache.invalidateAll(keys) }.then()
+  }
+}
@@ -0,0 +1,12 @@
+package com.zzs.framework.core.event.coroutine
+
+/**
+ * 批量处理事件时部分事件处理失败, 仅 [failedUuids] 中的事件会被重新投递, 其余事件正常确认
+ *
+ * @param failedUuids 处理失败的事件id
+ * @author 宋志宗 on 2026/10/17
+ */
+class EventBatchException(
+  val failedUuids: Set<String>,
+  cause: Throwable? = null
+) : RuntimeException("${failedUuids.size} 个事件处理失败", cause)
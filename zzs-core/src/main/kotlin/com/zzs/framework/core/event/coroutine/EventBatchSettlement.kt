@@ -0,0 +1,62 @@
+package com.zzs.framework.core.event.coroutine
+
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.reactor.mono
+import reactor.core.publisher.Flux
+import reactor.rabbitmq.AcknowledgableDelivery
+import java.time.Duration
+
+/**
+ * 将消息按照数量或等待时间分批, 批次之间顺序处理.
+ *
+ * [Flux.bufferTimeout] 在超时刷出批次时不检查下游请求, 下游处理缓慢时积压的批次超过 concatMap 的预取数量后
+ * 会以 "Could not emit buffer due to lack of requests" 终止消费流; 未处理的批次在中间无界缓存,
+ * 占用的内存由消费者的预取数量(QoS)限制.
+ *
+ * @param handler 批次处理函数, 处理完成之前不会开始下一批
+ * @author 宋志宗 on 2026/10/17
+ */
+internal fun <D : Any> batchDeliveries(
+  deliveries: Flux<D>,
+  batchSize: Int,
+  batchTimeout: Duration,
+  handler: suspend (List<D>) -> Unit
+): Flux<Unit> {
+  return deliveries.bufferTimeout(batchSize, batchTimeout)
+    .onBackpressureBuffer()
+    .concatMap { batch -> mono { handler(batch) } }
+}
+
+/**
+ * 按照处理结果确认同一个channel上的一批消息.
+ *
+ * 从批次开头起连续成功的消息通过一次 `multiple` 确认, 其后的消息在等待 [backoff] 后
+ * 逐条确认或重新入队, 每条消息只会被确认或拒绝一次.
+ *
+ * @param batch   按照投递顺序排列的消息
+ * @param success 每条消息是否可以确认
+ * @param backoff 存在失败的消息时, 重新入队之前的等待时间
+ * @author 宋志宗 on 2026/10/17
+ */
+internal suspend fun settleBatch(batch: List<AcknowledgableDelivery>, success: BooleanArray, backoff: Duration) {
+  var contiguous = 0
+  while (contiguous < batch.size && success[contiguous]) {
+    contiguous++
+  }
+  if (contiguous > 0) {
+    batch[contiguous - 1].ack(true)
+  }
+  if (contiguous == batch.size) {
+    return
+  }
+  if (!backoff.isZero) {
+    delay(backoff.toMillis())
+  }
+  for (i in contiguous until batch.size) {
+    if (success[i]) {
+      batch[i].ack()
+    } else {
+      batch[i].nack(true)
+    }
+  }
+}
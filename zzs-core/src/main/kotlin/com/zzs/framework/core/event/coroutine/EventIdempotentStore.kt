@@ -0,0 +1,26 @@
+package com.zzs.framework.core.event.coroutine
+
+/**
+ * 事件消费的幂等存储, 用于识别重复投递的消息
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+interface EventIdempotentStore {
+
+  /**
+   * 尝试占用key
+   *
+   * @return true表示首次处理, false表示重复投递
+   */
+  suspend fun tryAcquire(key: String): Boolean
+
+  /**
+   * 批量占用key
+   *
+   * @return 与入参顺序一致的占用结果, 同一批次中重复的key只有第一个能够占用成功
+   */
+  suspend fun tryAcquireAll(keys: List<String>): List<Boolean> = keys.map { tryAcquire(it) }
+
+  /** 处理失败时释放key, 使重新投递的消息能够再次处理 */
+  suspend fun release(key: String)
+}
@@ -3,6 +3,7 @@ package com.zzs.framework.core.event.coroutine
 import com.zzs.framework.core.event.Event
 import com.zzs.framework.core.event.EventListener
 import kotlinx.coroutines.CoroutineScope
+import java.time.Duration
 
 /**
  * 事件监听器管理器
@@ -26,4 +27,45 @@ interface EventListenerManager {
     clazz: Class<T>,
     block: suspend CoroutineScope.(T) -> Unit
   ): EventListener
+
+  /**
+   * 按key有序监听事件, 相同key的事件按照投递顺序依次处理, 不同key的事件并行处理
+   *
+   * @param queueName 监听器名称
+   * @param topic     事件主题
+   * @param clazz     事件类型
+   * @param orderKey  提取事件的分区key, 例如聚合根id
+   * @param block     处理逻辑
+   * @author 宋志宗 on 2026/10/17
+   */
+  fun <T : Event> listen(
+    queueName: String,
+    topic: String,
+    clazz: Class<T>,
+    orderKey: (T) -> String,
+    block: suspend CoroutineScope.(T) -> Unit
+  ): EventListener
+
+  /**
+   * 批量监听事件, 适用于批量写入等场景. 与 [listen] 共用队列声明与幂等逻辑.
+   *
+   * 处理逻辑抛出 [EventBatchException] 时只有其中列出的事件会被重新投递,
+   * 抛出其他异常时整批事件重新投递
+   *
+   * @param queueName    监听器名称
+   * @param topic        事件主题
+   * @param clazz        事件类型
+   * @param maxBatchSize 每批最多包含的事件数量
+   * @param maxLinger    凑满一批的最长等待时间
+   * @param block        批量处理逻辑, 入参按投递顺序排列且不会为空
+   * @author 宋志宗 on 2026/10/17
+   */
+  fun <T : Event> listenBatch(
+    queueName: String,
+    topic: String,
+    clazz: Class<T>,
+    maxBatchSize: Int = 100,
+    maxLinger: Duration = Duration.ofMillis(100),
+    block: suspend CoroutineScope.(List<T>) -> Unit
+  ): EventListener
 }
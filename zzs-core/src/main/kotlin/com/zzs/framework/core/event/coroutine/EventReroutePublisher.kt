@@ -0,0 +1,94 @@
+package com.zzs.framework.core.event.coroutine
+
+import kotlinx.coroutines.*
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.reactive.asFlow
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import reactor.core.publisher.Flux
+import reactor.rabbitmq.OutboundMessage
+import reactor.rabbitmq.Sender
+import java.util.*
+
+/**
+ * 转发失败消息的发布者, 同一时间到达的转发请求合并为一次带发布确认的发送.
+ *
+ * 每次 [Sender.sendWithPublishConfirms] 都会打开并关闭一个channel, 逐条发送时失败高峰期会产生大量channel.
+ * 发送在单个协程中顺序执行, 上一次发送期间到达的请求(最多 [maxBatchSize] 条)在下一次发送中一起完成.
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+internal class EventReroutePublisher(
+  private val sender: Sender,
+  private val maxBatchSize: Int = 256
+) {
+  companion object {
+    private val log: Logger = LoggerFactory.getLogger(EventReroutePublisher::class.java)
+  }
+
+  private class Request(val message: OutboundMessage, val result: CompletableDeferred<Boolean>)
+
+  private val scope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+  private val requests = Channel<Request>(Channel.UNLIMITED)
+
+  init {
+    scope.launch {
+      while (isActive) {
+        val batch = ArrayList<Request>()
+        batch.add(requests.receive())
+        while (batch.size < maxBatchSize) {
+          val result = requests.tryReceive()
+          if (!result.isSuccess) {
+            break
+          }
+          batch.add(result.getOrThrow())
+        }
+        send(batch)
+      }
+    }
+  }
+
+  /**
+   * 发送消息并等待broker确认
+   *
+   * @return 每条消息是否已经被broker确认
+   */
+  suspend fun publish(messages: List<OutboundMessage>): List<Boolean> {
+    val results = messages.map { message ->
+      CompletableDeferred<Boolean>().also { result ->
+        if (!requests.trySend(Request(message, result)).isSuccess) {
+          result.complete(false)
+        }
+      }
+    }
+    return results.awaitAll()
+  }
+
+  suspend fun publish(message: OutboundMessage): Boolean = publish(listOf(message))[0]
+
+  fun close() {
+    requests.close()
+    scope.cancel()
+    while (true) {
+      val request = requests.tryReceive().getOrNull() ?: break
+      request.result.complete(false)
+    }
+  }
+
+  private suspend fun send(batch: List<Request>) {
+    val pending = IdentityHashMap<OutboundMessage, CompletableDeferred<Boolean>>(batch.size)
+    batch.forEach { pending[it.message] = it.result }
+    try {
+      sender.sendWithPublishConfirms(Flux.fromIterable(batch.map { it.message })).asFlow().collect { result ->
+        pending.remove(result.outboundMessage)?.complete(result.isAck)
+      }
+    } catch (e: CancellationException) {
+      throw e
+    } catch (e: Exception) {
+      log.warn("转发失败的事件消息出现异常: {} 条", batch.size, e)
+    } finally {
+      // 未收到确认的消息视为转发失败
+      pending.values.forEach { it.complete(false) }
+    }
+  }
+}
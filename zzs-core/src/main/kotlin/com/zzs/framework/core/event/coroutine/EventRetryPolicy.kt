@@ -0,0 +1,34 @@
+package com.zzs.framework.core.event.coroutine
+
+import java.time.Duration
+
+/**
+ * 事件处理失败后的重试策略.
+ *
+ * 处理失败的消息会被转发到按延迟时间划分的重试队列, 在队列中过期后通过死信路由回原队列,
+ * 转发完成后原消息即被确认, 不再占用消费者; 处理次数达到 [maxAttempts] 后转发到死信队列.
+ *
+ * @param maxAttempts 最大处理次数, 包含首次处理
+ * @param delays      第n次重试的延迟时间为 `delays[n - 1]`, 超出部分使用最后一个值
+ * @author 宋志宗 on 2026/10/17
+ */
+class EventRetryPolicy(
+  val maxAttempts: Int,
+  val delays: List<Duration>
+) {
+  init {
+    require(maxAttempts > 0) { "maxAttempts must be positive" }
+    require(delays.isNotEmpty()) { "delays must not be empty" }
+  }
+
+  /** 第 [retry] 次重试的延迟时间, 从1开始 */
+  fun delay(retry: Int): Duration = delays[(retry - 1).coerceIn(0, delays.size - 1)]
+
+  /**
+   * 第 [attempts] 次处理失败后的重试延迟
+   *
+   * @param attempts 已经处理失败的次数, 从1开始
+   * @return 重试延迟, 达到最大处理次数时返回null, 表示应转发到死信队列
+   */
+  fun retryDelay(attempts: Int): Duration? = if (attempts >= maxAttempts) null else delay(attempts)
+}
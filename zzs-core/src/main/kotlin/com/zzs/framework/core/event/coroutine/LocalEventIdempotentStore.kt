@@ -0,0 +1,23 @@
+package com.zzs.framework.core.event.coroutine
+
+import com.github.benmanes.caffeine.cache.Cache
+import com.github.benmanes.caffeine.cache.Caffeine
+import java.time.Duration
+
+/**
+ * 基于本地缓存的幂等存储, 只能识别重新投递到当前节点的消息, 不需要访问redis.
+ *
+ * @param maxSize 最多记录的key数量, 超出后最早的记录可能被淘汰
+ * @param timeout key的保留时间
+ * @author 宋志宗 on 2026/10/17
+ */
+class LocalEventIdempotentStore(maxSize: Long, timeout: Duration) : EventIdempotentStore {
+  private val cache: Cache<String, Boolean> = Caffeine.newBuilder()
+    .maximumSize(maxSize)
+    .expireAfterWrite(timeout)
+    .build()
+
+  override suspend fun tryAcquire(key: String) = cache.asMap().putIfAbsent(key, true) == null
+
+  override suspend fun release(key: String) = cache.invalidate(key)
+}
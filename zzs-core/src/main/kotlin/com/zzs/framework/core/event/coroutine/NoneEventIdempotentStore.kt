@@ -0,0 +1,16 @@
+package com.zzs.framework.core.event.coroutine
+
+/**
+ * 不做幂等检查, 适用于处理逻辑本身幂等的场景
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+class NoneEventIdempotentStore : EventIdempotentStore {
+
+  override suspend fun tryAcquire(key: String) = true
+
+  override suspend fun tryAcquireAll(keys: List<String>) = keys.map { true }
+
+  override suspend fun release(key: String) {
+  }
+}
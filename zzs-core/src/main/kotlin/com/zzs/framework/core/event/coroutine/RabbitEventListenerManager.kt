@@ -1,30 +1,41 @@
 package com.zzs.framework.core.event.coroutine
 
+import com.rabbitmq.client.AMQP
 import com.zzs.framework.core.event.Event
 import com.zzs.framework.core.event.EventListener
 import com.zzs.framework.core.json.JsonUtils
-import com.zzs.framework.core.spring.RedisTemplateUtils
 import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.coroutineScope
 import kotlinx.coroutines.delay
-import kotlinx.coroutines.reactor.awaitSingleOrNull
+import kotlinx.coroutines.launch
 import kotlinx.coroutines.reactor.mono
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withPermit
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
 import org.springframework.boot.ApplicationArguments
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate
 import reactor.core.Disposable
 import reactor.rabbitmq.*
+import reactor.util.retry.Retry
 import java.time.Duration
 import java.util.*
 import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
 
 
 /**
  * 事件监听器管理器
  *
+ * @param prefetchCount 每个监听器未确认消息的最大数量, 小于等于0时取 [consumers] 的2倍
+ * @param consumers     每个监听器同时处理的最大消息数量
+ * @param batchSize     大于1时开启批量消费, 每批最多包含的消息数量
+ * @param batchTimeout  批量消费时凑满一批的最长等待时间
+ * @param retryPolicy   失败重试策略, 为null时失败的消息等待1秒后重新入队
+ * @param idempotentStore 幂等存储, 为null时使用保留10分钟的 [RedisEventIdempotentStore]
  * @author 宋志宗 on 2022/4/2
  */
-class RabbitEventListenerManager(
+class RabbitEventListenerManager @JvmOverloads constructor(
   private val exchange: String,
   private val temporary: Boolean,
   private val queuePrefix: String,
@@ -32,13 +43,34 @@ class RabbitEventListenerManager(
   private val sender: Sender,
   private val receiver: Receiver,
   private val redisTemplate: ReactiveStringRedisTemplate,
+  private val prefetchCount: Int = 0,
+  private val consumers: Int = 16,
+  private val batchSize: Int = 0,
+  private val batchTimeout: Duration = Duration.ofMillis(10),
+  private val retryPolicy: EventRetryPolicy? = null,
+  idempotentStore: EventIdempotentStore? = null,
 ) : EventListenerManager {
   companion object {
     private val log: Logger = LoggerFactory.getLogger(RabbitEventListener::class.java)
     private val registry = ConcurrentHashMap<String, RabbitEventListener<*>>()
-    private val timeout = Duration.ofMinutes(10)
+
+    /** 消息已经处理失败的次数 */
+    private const val RETRY_HEADER = "x-retry-attempts"
+
+    /** 转发到死信队列时记录的最后一次异常 */
+    private const val ERROR_HEADER = "x-retry-error"
+
+    /** 未配置重试策略时, 失败的消息重新入队之前的等待时间 */
+    private val REQUEUE_BACKOFF = Duration.ofSeconds(1)
+
+    /** 消费流异常终止后重新订阅的退避时间 */
+    private val RESUBSCRIBE_MIN_BACKOFF = Duration.ofSeconds(1)
+    private val RESUBSCRIBE_MAX_BACKOFF = Duration.ofMinutes(1)
   }
 
+  private val idempotentStore = idempotentStore
+    ?: RedisEventIdempotentStore(redisTemplate, Duration.ofMinutes(10))
+
   init {
     val topic = ExchangeSpecification
       .exchange(exchange).type("topic").durable(true)
@@ -47,12 +79,46 @@ class RabbitEventListenerManager(
   }
 
 
-  @Suppress("UNCHECKED_CAST")
   override fun <T : Event> listen(
     queueName: String,
     topic: String,
     clazz: Class<T>,
     block: suspend CoroutineScope.(T) -> Unit
+  ): RabbitEventListener<T> {
+    return register(queueName, topic, clazz, null, block)
+  }
+
+  override fun <T : Event> listen(
+    queueName: String,
+    topic: String,
+    clazz: Class<T>,
+    orderKey: (T) -> String,
+    block: suspend CoroutineScope.(T) -> Unit
+  ): RabbitEventListener<T> {
+    return register(queueName, topic, clazz, orderKey, block)
+  }
+
+  override fun <T : Event> listenBatch(
+    queueName: String,
+    topic: String,
+    clazz: Class<T>,
+    maxBatchSize: Int,
+    maxLinger: Duration,
+    block: suspend CoroutineScope.(List<T>) -> Unit
+  ): RabbitEventListener<T> {
+    return register(queueName, topic, clazz, null, null, block, maxOf(maxBatchSize, 1), maxLinger)
+  }
+
+  @Suppress("UNCHECKED_CAST")
+  private fun <T : Event> register(
+    queueName: String,
+    topic: String,
+    clazz: Class<T>,
+    orderKey: ((T) -> String)?,
+    block: (suspend CoroutineScope.(T) -> Unit)?,
+    batchBlock: (suspend CoroutineScope.(List<T>) -> Unit)? = null,
+    batchSize: Int = this.batchSize,
+    batchTimeout: Duration = this.batchTimeout
   ): RabbitEventListener<T> {
     var exist = true
     val eventListener = registry.computeIfAbsent(queueName) {
@@ -67,8 +133,13 @@ class RabbitEventListenerManager(
         cachePrefix,
         sender,
         receiver,
-        redisTemplate,
-        clazz, block
+        idempotentStore,
+        prefetchCount,
+        consumers,
+        batchSize,
+        batchTimeout,
+        retryPolicy,
+        clazz, orderKey, block, batchBlock
       )
     } as RabbitEventListener<T>
     if (exist) {
@@ -79,6 +150,27 @@ class RabbitEventListenerManager(
     return eventListener
   }
 
+  /**
+   * 各监听器识别出的重复投递次数, 用于观察重复投递的实际频率
+   *
+   * @return 监听器名称 -> 重复投递次数
+   */
+  fun duplicates(): Map<String, Long> {
+    return registry.mapValues { (_, listener) -> listener.duplicates() }
+  }
+
+  /**
+   * 每个监听器通过QoS限制未确认的消息数量, 并且同时最多处理 [consumers] 条消息.
+   *
+   * 指定 [orderKey] 时消息按照key的哈希值分为 [consumers] 个分区, 分区内顺序处理, 分区间并行处理.
+   * 处理失败的消息会被重新入队, 此时无法保证其与后续消息的顺序.
+   *
+   * 开启批量消费时, 每批消息通过一次往返完成去重检查, 处理完成后从批次开头起连续成功的消息
+   * 通过一次 `multiple` 确认, 批次之间顺序执行. 指定 [batchBlock] 时整批事件交由其一次处理.
+   *
+   * 指定 [retryPolicy] 且不是临时队列时, 为监听器声明重试队列 `<queue>.retry.<delayMillis>`
+   * 与死信队列 `<queue>.dlq`, 失败的消息经发布确认转发后立即确认原消息.
+   */
   class RabbitEventListener<T : Event>(
     exchange: String,
     topic: String,
@@ -86,14 +178,27 @@ class RabbitEventListenerManager(
     temporary: Boolean,
     queuePrefix: String,
     private val cachePrefix: String,
-    sender: Sender,
+    private val sender: Sender,
     private val receiver: Receiver,
-    private val redisTemplate: ReactiveStringRedisTemplate,
+    private val idempotentStore: EventIdempotentStore,
+    prefetchCount: Int,
+    consumers: Int,
+    private val batchSize: Int,
+    private val batchTimeout: Duration,
+    retryPolicy: EventRetryPolicy?,
     private val clazz: Class<T>,
-    private val block: suspend CoroutineScope.(T) -> Unit
+    private val orderKey: ((T) -> String)?,
+    private val block: (suspend CoroutineScope.(T) -> Unit)?,
+    private val batchBlock: (suspend CoroutineScope.(List<T>) -> Unit)? = null
   ) : EventListener {
-    private val lockValue = UUID.randomUUID().toString()
+    private val duplicates = AtomicLong()
     private val finalQueueName: String
+    private val concurrency = consumers.coerceAtLeast(1)
+    private val prefetch = (if (prefetchCount > 0) prefetchCount else concurrency * 2)
+      // 批量消费时预取数量至少能容纳正在处理的批次与下一批
+      .coerceAtLeast(if (batchSize > 1) batchSize * 2 else 1)
+    private val retryPolicy = if (temporary) null else retryPolicy
+    private val reroutePublisher = this.retryPolicy?.let { EventReroutePublisher(sender) }
     private var disposable: Disposable? = null
 
 
@@ -108,59 +213,275 @@ class RabbitEventListenerManager(
       }
       sender.declareQueue(queue).block()
       sender.bind(BindingSpecification.binding(exchange, topic, finalQueueName)).block()
+      this.retryPolicy?.let { declareRetryQueues(it) }
+    }
+
+    /** 重试队列中的消息过期后通过默认交换机路由回原队列 */
+    private fun declareRetryQueues(policy: EventRetryPolicy) {
+      policy.delays.map { it.toMillis() }.distinct().forEach { delay ->
+        val arguments = mapOf<String, Any>(
+          "x-message-ttl" to delay,
+          "x-dead-letter-exchange" to "",
+          "x-dead-letter-routing-key" to finalQueueName
+        )
+        val queue = QueueSpecification.queue(retryQueue(delay)).durable(true)
+          .exclusive(false).autoDelete(false).arguments(arguments)
+        sender.declareQueue(queue).block()
+      }
+      val dlq = QueueSpecification.queue(deadLetterQueue()).durable(true).exclusive(false).autoDelete(false)
+      sender.declareQueue(dlq).block()
+    }
+
+    private fun retryQueue(delayMillis: Long) = "$finalQueueName.retry.$delayMillis"
+
+    private fun deadLetterQueue() = "$finalQueueName.dlq"
+
+    /**
+     * 将处理失败的消息转发到重试队列, 处理次数达到上限时转发到死信队列
+     *
+     * @return 是否已经转发成功, 成功后可以直接确认原消息
+     */
+    private suspend fun reroute(delivery: AcknowledgableDelivery, cause: Throwable?): Boolean {
+      return rerouteAll(listOf(delivery to cause))[0]
+    }
+
+    /**
+     * 批量转发处理失败的消息, 同一批消息通过一次带发布确认的发送完成
+     *
+     * @param failures 处理失败的消息及其异常
+     * @return 每条消息是否已经转发成功
+     */
+    private suspend fun rerouteAll(failures: List<Pair<AcknowledgableDelivery, Throwable?>>): List<Boolean> {
+      val publisher = reroutePublisher ?: return failures.map { false }
+      if (failures.isEmpty()) {
+        return emptyList()
+      }
+      return publisher.publish(failures.map { (delivery, cause) -> rerouteMessage(delivery, cause) })
+    }
+
+    private fun rerouteMessage(delivery: AcknowledgableDelivery, cause: Throwable?): OutboundMessage {
+      val policy = retryPolicy!!
+      val properties = delivery.properties ?: AMQP.BasicProperties()
+      val headers = HashMap<String, Any?>(properties.headers ?: emptyMap())
+      val attempts = ((headers[RETRY_HEADER] as? Number)?.toInt() ?: 0) + 1
+      headers[RETRY_HEADER] = attempts
+      val delay = policy.retryDelay(attempts)
+      val queue = if (delay == null) {
+        headers[ERROR_HEADER] = cause?.toString()?.take(1024)
+        log.warn("事件处理 {} 次后仍然失败, 转发到死信队列: {}", attempts, deadLetterQueue())
+        deadLetterQueue()
+      } else {
+        retryQueue(delay.toMillis())
+      }
+      return OutboundMessage("", queue, properties.builder().headers(headers).build(), delivery.body)
     }
 
     private fun start() {
-      val options = ConsumeOptions()
-      disposable = receiver.consumeManualAck(finalQueueName, options)
-        .flatMap { delivery ->
-          mono {
-            var ack = true
-            try {
-              val body = delivery.body
-              val string = String(body, Charsets.UTF_8)
-              val message = try {
-                JsonUtils.parse(string, clazz)
-              } catch (e: Exception) {
-                log.info("反序列化事件消息出现异常 {} ", clazz.name, e)
-                return@mono
-              }
-              val uuid = message.uuid
-              val key = "$cachePrefix$finalQueueName:$uuid"
-              val tryLock = redisTemplate.opsForValue().setIfAbsent(key, lockValue, timeout)
-                .awaitSingleOrNull()
-              try {
-                if (tryLock == true) {
-                  block.invoke(this, message)
-                }
-              } catch (e: Exception) {
-                ack = false
-                try {
-                  if (uuid.isNotBlank()) {
-                    RedisTemplateUtils.unlock(redisTemplate, key, lockValue).awaitSingleOrNull()
-                  }
-                  log.warn("处理出现异常: ", e)
-                  delay(1000)
-                } catch (e: Exception) {
-                  log.info("异常的后续处理出现异常: ", e)
-                }
-              }
-            } finally {
-              if (ack) {
-                delivery.ack()
-              } else {
-                delivery.nack(true)
+      val options = ConsumeOptions().qos(prefetch)
+      val deliveries = receiver.consumeManualAck(finalQueueName, options)
+      val orderKey = orderKey
+      val handled = if (batchSize > 1 || batchBlock != null) {
+        // 批次之间顺序执行, 确认时才能确定连续的delivery tag
+        batchDeliveries(deliveries, batchSize, batchTimeout) { batch -> handleBatch(batch) }
+      } else if (orderKey == null) {
+        deliveries.flatMap({ delivery -> mono { handle(delivery, parse(delivery)) } }, concurrency)
+      } else {
+        // 分区数量等于并发数, flatMap可以同时订阅全部分区
+        deliveries.map { delivery -> delivery to parse(delivery) }
+          .groupBy { (_, message) -> partition(message, orderKey) }
+          .flatMap({ partition ->
+            partition.concatMap { (delivery, message) -> mono { handle(delivery, message) } }
+          }, concurrency)
+      }
+      // 消费流因连接中断等原因异常终止时, 按照退避时间重新订阅, 重新订阅会创建新的消费者
+      disposable = handled
+        .retryWhen(
+          Retry.backoff(Long.MAX_VALUE, RESUBSCRIBE_MIN_BACKOFF)
+            .maxBackoff(RESUBSCRIBE_MAX_BACKOFF)
+            .doBeforeRetry { signal ->
+              log.error("事件消费异常终止, 第{}次重新订阅: {}", signal.totalRetries() + 1, finalQueueName, signal.failure())
+            }
+        )
+        .subscribe({}, { e -> log.error("事件消费终止: {}", finalQueueName, e) })
+    }
+
+    private fun parse(delivery: AcknowledgableDelivery): T? {
+      return try {
+        JsonUtils.parse(String(delivery.body, Charsets.UTF_8), clazz)
+      } catch (e: Exception) {
+        log.info("反序列化事件消息出现异常 {} ", clazz.name, e)
+        null
+      }
+    }
+
+    private fun partition(message: T?, orderKey: (T) -> String): Int {
+      if (message == null) {
+        return 0
+      }
+      return try {
+        (orderKey.invoke(message).hashCode() and Int.MAX_VALUE) % concurrency
+      } catch (e: Exception) {
+        log.warn("获取事件分区key出现异常 {} ", clazz.name, e)
+        0
+      }
+    }
+
+    /** 处理单条消息, 无法反序列化的消息直接确认 */
+    private suspend fun CoroutineScope.handle(delivery: AcknowledgableDelivery, message: T?) {
+      var ack = true
+      try {
+        if (message == null) {
+          return
+        }
+        val uuid = message.uuid
+        val key = dedupKey(uuid)
+        val acquired = try {
+          idempotentStore.tryAcquire(key)
+        } catch (e: Exception) {
+          // 无法确认是否重复时不能确认消息, 等待后重新入队
+          log.warn("事件去重检查出现异常: {}", key, e)
+          ack = false
+          delay(REQUEUE_BACKOFF.toMillis())
+          return
+        }
+        try {
+          if (acquired) {
+            block!!.invoke(this, message)
+          } else {
+            duplicates.incrementAndGet()
+          }
+        } catch (e: Exception) {
+          ack = false
+          try {
+            if (uuid.isNotBlank()) {
+              idempotentStore.release(key)
+            }
+            log.warn("处理出现异常: ", e)
+            if (reroute(delivery, e)) {
+              ack = true
+            } else {
+              delay(REQUEUE_BACKOFF.toMillis())
+            }
+          } catch (e: Exception) {
+            log.info("异常的后续处理出现异常: ", e)
+          }
+        }
+      } finally {
+        if (ack) {
+          delivery.ack()
+        } else {
+          delivery.nack(true)
+        }
+      }
+    }
+
+    private suspend fun handleBatch(batch: List<AcknowledgableDelivery>) {
+      settleBatch(batch, processBatch(batch), REQUEUE_BACKOFF)
+    }
+
+    /**
+     * 去重并处理一批消息, 返回每条消息是否可以确认.
+     * 去重检查失败时无法确认任何消息是否重复, 整批重新入队
+     */
+    private suspend fun processBatch(batch: List<AcknowledgableDelivery>): BooleanArray {
+      val messages = batch.map { parse(it) }
+      val indices = messages.indices.filter { messages[it] != null }
+      val acquired = try {
+        idempotentStore.tryAcquireAll(indices.map { dedupKey(messages[it]!!.uuid) })
+      } catch (e: Exception) {
+        log.warn("批量去重检查出现异常, 整批重新入队: {}", finalQueueName, e)
+        return BooleanArray(batch.size) { messages[it] == null }
+      }
+      val tasks = indices.filterIndexed { i, _ -> acquired[i] }
+      duplicates.addAndGet((indices.size - tasks.size).toLong())
+      val groups = when (val orderKey = orderKey) {
+        null -> tasks.map { listOf(it) }
+        else -> tasks.groupBy { partition(messages[it], orderKey) }.values
+      }
+      val errors = arrayOfNulls<Exception>(batch.size)
+      val batchBlock = batchBlock
+      if (batchBlock != null) {
+        val failed = coroutineScope { processAll(batchBlock, tasks.map { messages[it]!! }) }
+        tasks.forEach { i -> errors[i] = failed[messages[i]!!.uuid] }
+      } else {
+        val semaphore = Semaphore(concurrency)
+        coroutineScope {
+          groups.forEach { group ->
+            launch {
+              semaphore.withPermit {
+                group.forEach { i -> errors[i] = process(messages[i]!!) }
               }
             }
           }
-        }.subscribe()
+        }
+      }
+      // 成功转发到重试队列或死信队列的消息与处理成功的消息一样直接确认
+      val success = BooleanArray(batch.size) { errors[it] == null }
+      val failed = batch.indices.filter { !success[it] }
+      rerouteAll(failed.map { batch[it] to errors[it] }).forEachIndexed { i, rerouted -> success[failed[i]] = rerouted }
+      return success
+    }
+
+    /**
+     * 执行处理逻辑, 失败时释放去重锁以便重新投递后再次处理
+     *
+     * @return 处理失败的异常, 成功时为null
+     */
+    private suspend fun CoroutineScope.process(message: T): Exception? {
+      return try {
+        block!!.invoke(this, message)
+        null
+      } catch (e: Exception) {
+        log.warn("处理出现异常: ", e)
+        unlock(message)
+        e
+      }
+    }
+
+    /** 批量执行处理逻辑, 返回处理失败的事件id -> 异常 */
+    private suspend fun CoroutineScope.processAll(
+      batchBlock: suspend CoroutineScope.(List<T>) -> Unit,
+      messages: List<T>
+    ): Map<String, Exception> {
+      if (messages.isEmpty()) {
+        return emptyMap()
+      }
+      val failed = try {
+        batchBlock.invoke(this, messages)
+        return emptyMap()
+      } catch (e: EventBatchException) {
+        log.warn("批量处理部分失败: {}", e.failedUuids, e)
+        e.failedUuids.associateWith { e }
+      } catch (e: Exception) {
+        log.warn("批量处理出现异常: ", e)
+        messages.associate { it.uuid to e }
+      }
+      messages.forEach { if (it.uuid in failed) unlock(it) }
+      return failed
     }
 
+    /** 释放去重锁以便重新投递后再次处理 */
+    private suspend fun unlock(message: T) {
+      try {
+        if (message.uuid.isNotBlank()) {
+          idempotentStore.release(dedupKey(message.uuid))
+        }
+      } catch (e: Exception) {
+        log.info("异常的后续处理出现异常: ", e)
+      }
+    }
+
+    private fun dedupKey(uuid: String) = "$cachePrefix$finalQueueName:$uuid"
+
+    /** 识别出的重复投递次数 */
+    fun duplicates(): Long = duplicates.get()
+
     private fun stop() {
       if (disposable?.isDisposed == true) {
         return
       }
       disposable?.dispose()
+      reroutePublisher?.close()
     }
 
     override fun destroy() {
@@ -0,0 +1,50 @@
+package com.zzs.framework.core.event.coroutine
+
+import com.zzs.framework.core.spring.RedisTemplateUtils
+import kotlinx.coroutines.reactor.awaitSingle
+import kotlinx.coroutines.reactor.awaitSingleOrNull
+import org.springframework.data.redis.connection.ReactiveStringCommands.SetCommand
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate
+import org.springframework.data.redis.core.types.Expiration
+import reactor.core.publisher.Flux
+import java.time.Duration
+import java.util.*
+
+/**
+ * 基于redis SET NX的幂等存储, 能够识别重新投递到任意节点的消息
+ *
+ * @param timeout key的保留时间
+ * @author 宋志宗 on 2026/10/17
+ */
+class RedisEventIdempotentStore(
+  private val redisTemplate: ReactiveStringRedisTemplate,
+  private val timeout: Duration
+) : EventIdempotentStore {
+  private val lockValue = UUID.randomUUID().toString()
+
+  override suspend fun tryAcquire(key: String): Boolean {
+    return redisTemplate.opsForValue().setIfAbsent(key, lockValue, timeout).awaitSingleOrNull() == true
+  }
+
+  /** 通过一组流水线执行的 SET NX 完成批量占用 */
+  override suspend fun tryAcquireAll(keys: List<String>): List<Boolean> {
+    if (keys.isEmpty()) {
+      return emptyList()
+    }
+    val context = redisTemplate.serializationContext
+    return redisTemplate.execute { connection ->
+      val commands = Flux.fromIterable(keys).map { key ->
+        SetCommand.set(context.keySerializationPair.write(key))
+          .value(context.valueSerializationPair.write(lockValue))
+          .expiring(Expiration.from(timeout))
+          .withSetOption(SetOption.SET_IF_ABSENT)
+      }
+      connection.stringCommands().set(commands)
+    }.map { it.output == true }.collectList().awaitSingle()
+  }
+
+  override suspend fun release(key: String) {
+    RedisTemplateUtils.unlock(redisTemplate, key, lockValue).awaitSingleOrNull()
+  }
+}
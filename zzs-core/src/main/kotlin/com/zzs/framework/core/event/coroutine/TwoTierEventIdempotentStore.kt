@@ -0,0 +1,55 @@
+package com.zzs.framework.core.event.coroutine
+
+/**
+ * 本地缓存 + 远程(redis)的两级幂等存储.
+ *
+ * 本地缓存只用于回答当前节点已经占用过的key, 命中时直接判定为重复而不访问redis;
+ * 本地未记录的key在处理之前通过远程存储占用(批量模式下使用一次流水线),
+ * 因此消息在某个节点处理后未能确认而被重新投递到其他节点时, 仍然能够被识别为重复.
+ *
+ * 远程存储出现异常时回滚本地占用, 避免重新入队的消息在当前节点被误判为重复.
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+class TwoTierEventIdempotentStore(
+  private val local: LocalEventIdempotentStore,
+  private val remote: EventIdempotentStore
+) : EventIdempotentStore {
+
+  override suspend fun tryAcquire(key: String): Boolean {
+    if (!local.tryAcquire(key)) {
+      return false
+    }
+    return try {
+      remote.tryAcquire(key)
+    } catch (e: Throwable) {
+      local.release(key)
+      throw e
+    }
+  }
+
+  override suspend fun tryAcquireAll(keys: List<String>): List<Boolean> {
+    val result = local.tryAcquireAll(keys).toMutableList()
+    val remoteIndices = keys.indices.filter { result[it] }
+    if (remoteIndices.isEmpty()) {
+      return result
+    }
+    val acquired = try {
+      remote.tryAcquireAll(remoteIndices.map { keys[it] })
+    } catch (e: Throwable) {
+      // 整批都会重新入队, 回滚本批次的全部本地占用
+      remoteIndices.forEach { local.release(keys[it]) }
+      throw e
+    }
+    acquired.forEachIndexed { i, ok -> result[remoteIndices[i]] = ok }
+    return result
+  }
+
+  override suspend fun release(key: String) {
+    try {
+      remote.release(key)
+    } finally {
+      local.release(key)
+    }
+  }
+}
@@ -0,0 +1,239 @@
+package com.zzs.framework.core.lock
+
+import kotlinx.coroutines.*
+import kotlinx.coroutines.reactor.mono
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import reactor.core.publisher.Mono
+import java.time.Duration
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.math.max
+import kotlin.math.min
+
+/**
+ * 可重入的分布式锁, 通过 [RedisLockFactory.getLock] 获取.
+ *
+ * 一个锁对象代表一个持有者, 持有期间使用同一个锁对象再次加锁即为重入, 加锁几次就需要解锁几次.
+ * 同时提供挂起、[Mono] 和阻塞三套API, 阻塞API不要在事件循环线程中调用.
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+class RedisLock internal constructor(
+  private val factory: RedisLockFactory,
+  /** 锁在redis中的key */
+  val key: String,
+  private val owner: String
+) {
+  companion object {
+    private val log: Logger = LoggerFactory.getLogger(RedisLock::class.java)
+
+    /**
+     * 加锁失败后等待释放通知的最长时间.
+     * 锁没有过期时间时按照租期定期重试, 而不是每毫秒重新执行加锁脚本
+     *
+     * @param ttl       加锁脚本的返回值
+     * @param remaining 距离等待截止时间的毫秒数
+     * @param lease     租期(毫秒)
+     */
+    internal fun waitMillis(ttl: Long, remaining: Long, lease: Long): Long {
+      val wait = if (ttl == RedisLockScripts.HELD_WITHOUT_EXPIRY) lease else ttl
+      return max(min(wait, remaining), 1)
+    }
+  }
+
+  private val holdCount = AtomicInteger()
+
+  @Volatile
+  private var entry: RedisLockFactory.LockEntry? = null
+
+  @Volatile
+  private var leaseMillis = factory.leaseTime.toMillis()
+
+  @Volatile
+  private var watchdog: Job? = null
+
+  /** 当前锁对象是否持有锁 */
+  val isHeld get() = holdCount.get() > 0
+
+  /**
+   * 尝试加锁
+   *
+   * @param waitTime  等待锁的最长时间
+   * @param leaseTime 租期, 为null时由看门狗自动续期, 指定后到期自动释放
+   * @return 是否加锁成功
+   */
+  suspend fun tryLock(waitTime: Duration, leaseTime: Duration? = null): Boolean {
+    return acquire(System.nanoTime() + waitTime.toNanos(), leaseTime)
+  }
+
+  /**
+   * 加锁, 一直等待直到成功
+   *
+   * @param leaseTime 租期, 为null时由看门狗自动续期, 指定后到期自动释放
+   */
+  suspend fun lock(leaseTime: Duration? = null) {
+    acquire(null, leaseTime)
+  }
+
+  /** 解锁, 重入的锁需要解锁相同的次数才会真正释放 */
+  suspend fun unlock() {
+    check(holdCount.get() > 0) { "未持有锁: $key" }
+    val result = factory.release(key, owner, leaseMillis)
+    if (result < 0) {
+      log.warn("释放锁时锁已过期或被其他持有者获取: {}", key)
+      holdCount.set(0)
+      clear()
+      return
+    }
+    if (holdCount.decrementAndGet() == 0) {
+      clear()
+    }
+  }
+
+  /**
+   * 在锁的保护下执行 [block], 执行完成后解锁
+   *
+   * @param leaseTime 租期, 为null时由看门狗自动续期
+   */
+  suspend fun <T> withLock(leaseTime: Duration? = null, block: suspend () -> T): T {
+    lock(leaseTime)
+    try {
+      return block.invoke()
+    } finally {
+      withContext(NonCancellable) { unlock() }
+    }
+  }
+
+  @JvmOverloads
+  fun tryLockMono(waitTime: Duration, leaseTime: Duration? = null): Mono<Boolean> {
+    return mono(Dispatchers.Unconfined) { tryLock(waitTime, leaseTime) }
+  }
+
+  @JvmOverloads
+  fun lockMono(leaseTime: Duration? = null): Mono<Void> {
+    return mono(Dispatchers.Unconfined) { lock(leaseTime) }.then()
+  }
+
+  fun unlockMono(): Mono<Void> {
+    return mono(Dispatchers.Unconfined) { unlock() }.then()
+  }
+
+  @JvmOverloads
+  fun tryLockBlocking(waitTime: Duration, leaseTime: Duration? = null): Boolean {
+    return runBlocking { tryLock(waitTime, leaseTime) }
+  }
+
+  @JvmOverloads
+  fun lockBlocking(leaseTime: Duration? = null) {
+    runBlocking { lock(leaseTime) }
+  }
+
+  fun unlockBlocking() {
+    runBlocking { unlock() }
+  }
+
+  /**
+   * @param deadline 等待截止时间(nanoTime), 为null表示一直等待
+   */
+  private suspend fun acquire(deadline: Long?, leaseTime: Duration?): Boolean {
+    val lease = (leaseTime ?: factory.leaseTime).toMillis()
+    if (holdCount.get() > 0) {
+      // 重入, 持有者不变因此不需要排队
+      if (factory.tryAcquire(key, owner, leaseMillis) == RedisLockScripts.ACQUIRED) {
+        holdCount.incrementAndGet()
+        return true
+      }
+      return false
+    }
+    val entry = factory.retain(key)
+    var locked = false
+    try {
+      if (!lockLocal(entry, deadline)) {
+        return false
+      }
+      try {
+        var subscribed = false
+        while (true) {
+          val ttl = factory.tryAcquire(key, owner, lease)
+          if (ttl == RedisLockScripts.ACQUIRED) {
+            locked = true
+            break
+          }
+          val remaining = if (deadline == null) Long.MAX_VALUE else (deadline - System.nanoTime()) / 1_000_000
+          if (remaining <= 0) {
+            return false
+          }
+          if (!subscribed) {
+            // 订阅生效后立即重试一次, 避免错过订阅之前发出的释放通知
+            entry.subscribe()
+            subscribed = true
+            continue
+          }
+          // 持有者异常退出时不会发出通知, 最迟在锁过期时重试
+          withTimeoutOrNull(waitMillis(ttl, remaining, lease)) { entry.signal.receive() }
+        }
+      } finally {
+        if (!locked) {
+          entry.mutex.unlock()
+        }
+      }
+    } finally {
+      if (!locked) {
+        factory.release(entry)
+      }
+    }
+    this.entry = entry
+    this.leaseMillis = lease
+    holdCount.set(1)
+    if (leaseTime == null) {
+      startWatchdog()
+    }
+    return true
+  }
+
+  private suspend fun lockLocal(entry: RedisLockFactory.LockEntry, deadline: Long?): Boolean {
+    if (entry.mutex.tryLock()) {
+      return true
+    }
+    if (deadline == null) {
+      entry.mutex.lock()
+      return true
+    }
+    val remaining = deadline - System.nanoTime()
+    if (remaining <= 0) {
+      return false
+    }
+    return withTimeoutOrNull(Duration.ofNanos(remaining).toMillis().coerceAtLeast(1)) {
+      entry.mutex.lock()
+      true
+    } ?: false
+  }
+
+  private fun startWatchdog() {
+    watchdog = factory.scope.launch {
+      val interval = max(leaseMillis / 3, 1)
+      while (isActive) {
+        delay(interval)
+        try {
+          if (!factory.renew(key, owner, leaseMillis)) {
+            log.warn("锁续期失败, 锁已过期或被其他持有者获取: {}", key)
+            break
+          }
+        } catch (e: CancellationException) {
+          throw e
+        } catch (e: Exception) {
+          log.warn("锁续期出现异常: {}", key, e)
+        }
+      }
+    }
+  }
+
+  private fun clear() {
+    watchdog?.cancel()
+    watchdog = null
+    val entry = this.entry ?: return
+    this.entry = null
+    entry.mutex.unlock()
+    factory.release(entry)
+  }
+}
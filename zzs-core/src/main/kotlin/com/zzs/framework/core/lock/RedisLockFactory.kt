@@ -0,0 +1,160 @@
+package com.zzs.framework.core.lock
+
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.reactor.awaitSingleOrNull
+import kotlinx.coroutines.sync.Mutex
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import org.springframework.beans.factory.DisposableBean
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate
+import org.springframework.data.redis.listener.ChannelTopic
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer
+import reactor.core.Disposable
+import java.time.Duration
+import java.util.*
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * 可重入分布式锁的工厂.
+ *
+ * - 加锁、解锁和续期均通过缓存了SHA1的lua脚本完成
+ * - 未指定租期时由看门狗按照 [leaseTime] 的三分之一周期续期, 持有者停止运行后锁会在租期结束时自动释放
+ * - 同一节点内的竞争者通过公平的本地互斥锁排队, 每个节点同时只有一个竞争者访问redis,
+ *   它通过pub/sub等待锁释放的通知, 而不是轮询
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+class RedisLockFactory @JvmOverloads constructor(
+  private val redisTemplate: ReactiveStringRedisTemplate,
+  private val prefix: String = "redis_lock:",
+  internal val leaseTime: Duration = Duration.ofSeconds(30)
+) : DisposableBean {
+  companion object {
+    private val log: Logger = LoggerFactory.getLogger(RedisLockFactory::class.java)
+    private const val CHANNEL_PREFIX = "redis_lock_channel:"
+  }
+
+  private val nodeId = UUID.randomUUID().toString().replace("-", "")
+  private val holderSequence = AtomicLong()
+  private val entries = HashMap<String, LockEntry>()
+  internal val scope = CoroutineScope(SupervisorJob() + Dispatchers.Default)
+
+  @Volatile
+  private var container: ReactiveRedisMessageListenerContainer? = null
+
+  /**
+   * 获取锁对象, 每个锁对象代表一个独立的持有者, 重入需要使用同一个锁对象
+   *
+   * @param name 锁名称
+   */
+  fun getLock(name: String): RedisLock {
+    val owner = "$nodeId:${holderSequence.incrementAndGet()}"
+    return RedisLock(this, "$prefix$name", owner)
+  }
+
+  override fun destroy() {
+    scope.cancel()
+    synchronized(entries) {
+      entries.values.forEach { it.dispose() }
+      entries.clear()
+    }
+    container?.destroy()
+  }
+
+  /** 尝试加锁, 成功返回-1, 失败返回锁的剩余存活时间(毫秒) */
+  internal suspend fun tryAcquire(key: String, owner: String, leaseMillis: Long): Long {
+    return redisTemplate.execute(RedisLockScripts.LOCK, listOf(key), listOf(leaseMillis.toString(), owner))
+      .next().awaitSingleOrNull() ?: 0L
+  }
+
+  /** 解锁, 未持有返回-1, 仍有重入返回0, 完全释放返回1 */
+  internal suspend fun release(key: String, owner: String, leaseMillis: Long): Long {
+    val args = listOf(leaseMillis.toString(), owner, channel(key))
+    return redisTemplate.execute(RedisLockScripts.UNLOCK, listOf(key), args)
+      .next().awaitSingleOrNull() ?: -1L
+  }
+
+  /** 续期, 锁已不属于持有者时返回false */
+  internal suspend fun renew(key: String, owner: String, leaseMillis: Long): Boolean {
+    return (redisTemplate.execute(RedisLockScripts.RENEW, listOf(key), listOf(leaseMillis.toString(), owner))
+      .next().awaitSingleOrNull() ?: 0L) > 0
+  }
+
+  /** 获取锁对应的本地排队状态并增加引用计数 */
+  internal fun retain(key: String): LockEntry {
+    synchronized(entries) {
+      val entry = entries.getOrPut(key) { LockEntry(key) }
+      entry.refs++
+      return entry
+    }
+  }
+
+  /** 减少引用计数, 没有引用时取消订阅 */
+  internal fun release(entry: LockEntry) {
+    synchronized(entries) {
+      if (--entry.refs == 0) {
+        entries.remove(entry.key)
+        entry.dispose()
+      }
+    }
+  }
+
+  private fun channel(key: String) = "$CHANNEL_PREFIX$key"
+
+  private fun container(): ReactiveRedisMessageListenerContainer {
+    container?.let { return it }
+    synchronized(this) {
+      container?.let { return it }
+      val connectionFactory = redisTemplate.connectionFactory
+      return ReactiveRedisMessageListenerContainer(connectionFactory).also { container = it }
+    }
+  }
+
+  /**
+   * 同一把锁在本节点的排队状态
+   */
+  internal inner class LockEntry(val key: String) {
+    /** 本地公平排队, 持有此互斥锁的竞争者才会访问redis */
+    val mutex = Mutex()
+
+    /** 锁释放通知 */
+    val signal = Channel<Unit>(Channel.CONFLATED)
+
+    /** 引用计数, 由 [entries] 的锁保护 */
+    var refs = 0
+
+    private val subscribed = CompletableDeferred<Unit>()
+
+    @Volatile
+    private var subscription: Disposable? = null
+
+    /** 订阅锁释放通知, 订阅生效后返回 */
+    suspend fun subscribe() {
+      if (subscription == null) {
+        synchronized(this) {
+          if (subscription == null) {
+            subscription = container().receiveLater(ChannelTopic.of(channel(key)))
+              .doOnNext { subscribed.complete(Unit) }
+              .flatMapMany { it }
+              .subscribe({ signal.trySend(Unit) }, { e ->
+                subscribed.complete(Unit)
+                log.warn("订阅锁释放通知出现异常: {}", key, e)
+              })
+          }
+        }
+      }
+      subscribed.await()
+    }
+
+    fun dispose() {
+      subscription?.dispose()
+      signal.close()
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package com.zzs.framework.core.lock
+
+import org.springframework.data.redis.core.script.RedisScript
+
+/**
+ * 分布式锁使用的lua脚本, 锁以hash结构保存: field为持有者id, value为重入次数.
+ *
+ * 脚本通过 [RedisScript] 执行, SHA1会被缓存并优先使用EVALSHA.
+ *
+ * @author 宋志宗 on 2026/10/17
+ */
+internal object RedisLockScripts {
+
+  /** [LOCK] 加锁成功 */
+  const val ACQUIRED = -1L
+
+  /** [LOCK] 锁被其他持有者占用且没有过期时间, 只能等待释放通知 */
+  const val HELD_WITHOUT_EXPIRY = -2L
+
+  /**
+   * 加锁, KEYS[1]: 锁, ARGV[1]: 租期(毫秒), ARGV[2]: 持有者id.
+   * 成功返回 [ACQUIRED], 锁没有过期时间返回 [HELD_WITHOUT_EXPIRY], 否则返回锁的剩余存活时间(毫秒)
+   */
+  val LOCK: RedisScript<Long> = RedisScript.of(
+    """
+    if (redis.call('exists', KEYS[1]) == 0) or (redis.call('hexists', KEYS[1], ARGV[2]) == 1) then
+      redis.call('hincrby', KEYS[1], ARGV[2], 1)
+      redis.call('pexpire', KEYS[1], ARGV[1])
+      return -1
+    end
+    local ttl = redis.call('pttl', KEYS[1])
+    if ttl == -1 then
+      return -2
+    end
+    if ttl < 0 then
+      return 0
+    end
+    return ttl
+    """.trimIndent(), Long::class.java
+  )
+
+  /**
+   * 解锁, KEYS[1]: 锁, ARGV[1]: 租期(毫秒), ARGV[2]: 持有者id, ARGV[3]: 通知频道.
+   * 未持有返回-1, 仍有重入返回0, 完全释放返回1并通知等待者
+   */
+  val UNLOCK: RedisScript<Long> = RedisScript.of(
+    """
+    if redis.call('hexists', KEYS[1], ARGV[2]) == 0 then
+      return -1
+    end
+    local counter = redis.call('hincrby', KEYS[1], ARGV[2], -1)
+    if counter > 0 then
+      redis.call('pexpire', KEYS[1], ARGV[1])
+      return 0
+    end
+    redis.call('del', KEYS[1])
+    redis.call('publish', ARGV[3], KEYS[1])
+    return 1
+    """.trimIndent(), Long::class.java
+  )
+
+  /**
+   * 续期, KEYS[1]: 锁, ARGV[1]: 租期(毫秒), ARGV[2]: 持有者id.
+   * 续期成功返回1, 锁已不属于持有者返回0
+   */
+  val RENEW: RedisScript<Long> = RedisScript.of(
+    """
+    if redis.call('hexists', KEYS[1], ARGV[2]) == 1 then
+      redis.call('pexpire', KEYS[1], ARGV[1])
+      return 1
+    end
+    return 0
+    """.trimIndent(), Long::class.java
+  )
+}
@@ -0,0 +1,36 @@
+package com.zzs.framework.core.cache.compress;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author 宋志宗 on 2026/10/17
+ */
+public class ValueCompressionTest {
+
+  @Test
+  public void compress() {
+    byte[] value = "{\"name\":\"zzs\"}".repeat(500).getBytes(StandardCharsets.UTF_8);
+    for (ValueCompressor compressor : new ValueCompressor[]{
+      DeflateValueCompressor.instance(), Lz4ValueCompressor.instance()}) {
+      ValueCompression compression = new ValueCompression(compressor, 1024);
+      byte[] compressed = compression.compress(value);
+      assertTrue(compressed.length < value.length);
+      assertTrue(ValueCompression.isCompressed(compressed, 0, compressed.length));
+      assertArrayEquals(value, compression.decompress(compressed, 0, compressed.length));
+      assertArrayEquals(value, ValueCompression.decompressBuiltin(compressed, 0, compressed.length));
+    }
+  }
+
+  @Test
+  public void belowThreshold() {
+    byte[] value = "{\"name\":\"zzs\"}".getBytes(StandardCharsets.UTF_8);
+    ValueCompression compression = new ValueCompression(DeflateValueCompressor.instance(), 1024);
+    byte[] compressed = compression.compress(value);
+    assertSame(value, compressed);
+    assertFalse(ValueCompression.isCompressed(compressed, 0, compressed.length));
+  }
+}
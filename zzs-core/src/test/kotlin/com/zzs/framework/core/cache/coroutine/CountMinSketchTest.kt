@@ -0,0 +1,44 @@
+package com.zzs.framework.core.cache.coroutine
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * @author 宋志宗 on 2026/10/17
+ */
+class CountMinSketchTest {
+
+  @Test
+  fun neverUnderestimates() {
+    val sketch = CountMinSketch(256)
+    val counts = HashMap<String, Int>()
+    for (i in 0 until 5000) {
+      val key = "key:${i % 500}"
+      val estimate = sketch.increment(key)
+      val actual = counts.merge(key, 1, Int::plus)!!
+      assertTrue(estimate >= actual)
+    }
+    counts.forEach { (key, count) -> assertTrue(sketch.estimate(key) >= count) }
+  }
+
+  @Test
+  fun hotKeyStandsOut() {
+    val sketch = CountMinSketch(1024)
+    repeat(1000) { sketch.increment("hot") }
+    for (i in 0 until 1000) {
+      sketch.increment("cold:$i")
+    }
+    assertTrue(sketch.estimate("hot") >= 1000)
+    assertTrue(sketch.estimate("cold:1") < 100)
+  }
+
+  @Test
+  fun clear() {
+    val sketch = CountMinSketch(16)
+    repeat(10) { sketch.increment("a") }
+    sketch.clear()
+    assertEquals(0, sketch.estimate("a"))
+    assertEquals(1, sketch.increment("a"))
+  }
+}
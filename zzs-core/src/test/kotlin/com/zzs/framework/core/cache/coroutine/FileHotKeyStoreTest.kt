@@ -0,0 +1,30 @@
+package com.zzs.framework.core.cache.coroutine
+
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.nio.file.Files
+
+/**
+ * @author 宋志宗 on 2026/10/17
+ */
+class FileHotKeyStoreTest {
+
+  @Test
+  fun saveAndLoad() = runBlocking {
+    val dir = Files.createTempDirectory("hot_keys")
+    val store = FileHotKeyStore(dir.resolve("nested").resolve("keys.txt"))
+    assertTrue(store.load(10).isEmpty())
+
+    store.save(listOf("p:a", "p:b", "p:c"))
+    assertEquals(listOf("p:a", "p:b", "p:c"), store.load(10))
+    assertEquals(listOf("p:a", "p:b"), store.load(2))
+
+    // 新的快照整体替换旧的快照
+    store.save(listOf("p:d"))
+    assertEquals(listOf("p:d"), store.load(10))
+    dir.toFile().deleteRecursively()
+    Unit
+  }
+}
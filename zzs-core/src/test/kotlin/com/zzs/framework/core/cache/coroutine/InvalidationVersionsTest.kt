@@ -0,0 +1,44 @@
+package com.zzs.framework.core.cache.coroutine
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+/**
+ * @author 宋志宗 on 2026/10/17
+ */
+class InvalidationVersionsTest {
+
+  @Test
+  fun putIfCurrent() {
+    val versions = InvalidationVersions(16)
+    val memory = HashMap<String, String>()
+    val version = versions.get("k")
+    assertTrue(versions.putIfCurrent("k", version, { memory["k"] = "v1" }) { memory.remove("k") })
+    assertEquals("v1", memory["k"])
+
+    // 读取期间发生了失效, 放弃写入
+    val stale = versions.get("k")
+    versions.increment("k")
+    memory.remove("k")
+    assertFalse(versions.putIfCurrent("k", stale, { memory["k"] = "v0" }) { memory.remove("k") })
+    assertFalse(memory.containsKey("k"))
+
+    // 写入之后才发生失效, 回滚写入
+    val current = versions.get("k")
+    assertFalse(versions.putIfCurrent("k", current, {
+      memory["k"] = "v0"
+      versions.increment("k")
+    }) { memory.remove("k") })
+    assertFalse(memory.containsKey("k"))
+  }
+
+  @Test
+  fun incrementAll() {
+    val versions = InvalidationVersions(4)
+    val before = listOf("a", "b", "c", "d", "e").associateWith { versions.get(it) }
+    versions.incrementAll()
+    before.forEach { (key, version) -> assertTrue(versions.get(key) > version) }
+  }
+}
@@ -0,0 +1,65 @@
+package com.zzs.framework.core.cache.coroutine
+
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.time.Duration
+
+/**
+ * @author 宋志宗 on 2026/10/17
+ */
+class LoaderCircuitBreakerTest {
+
+  @Test
+  fun openAfterConsecutiveFailures() {
+    val breaker = LoaderCircuitBreaker(3, Duration.ofMinutes(1))
+    repeat(2) {
+      assertTrue(breaker.tryAcquire())
+      breaker.onFailure()
+    }
+    assertTrue(breaker.tryAcquire())
+    breaker.onSuccess()
+    repeat(3) {
+      assertTrue(breaker.tryAcquire())
+      breaker.onFailure()
+    }
+    assertFalse(breaker.tryAcquire())
+  }
+
+  @Test
+  fun halfOpenProbe() {
+    val breaker = open()
+    Thread.sleep(60)
+    assertTrue(breaker.tryAcquire())
+    // 同一时间只放行一次探测
+    assertFalse(breaker.tryAcquire())
+    breaker.onFailure()
+    assertFalse(breaker.tryAcquire())
+    Thread.sleep(60)
+    assertTrue(breaker.tryAcquire())
+    breaker.onSuccess()
+    assertTrue(breaker.tryAcquire())
+    assertTrue(breaker.tryAcquire())
+  }
+
+  @Test
+  fun cancelledProbeIsReleased() {
+    val breaker = open()
+    Thread.sleep(60)
+    assertTrue(breaker.tryAcquire())
+    assertFalse(breaker.tryAcquire())
+    // 探测被取消, 不计入失败, 下一次调用可以重新探测
+    breaker.release()
+    assertTrue(breaker.tryAcquire())
+    breaker.onSuccess()
+    assertTrue(breaker.tryAcquire())
+  }
+
+  private fun open(): LoaderCircuitBreaker {
+    val breaker = LoaderCircuitBreaker(1, Duration.ofMillis(50))
+    assertTrue(breaker.tryAcquire())
+    breaker.onFailure()
+    assertFalse(breaker.tryAcquire())
+    return breaker
+  }
+}
@@ -0,0 +1,66 @@
+package com.zzs.framework.core.cache.coroutine
+
+import org.junit.Assert.*
+import org.junit.Test
+import java.time.Duration
+
+/**
+ * @author 宋志宗 on 2026/10/17
+ */
+class OffHeapLocalCacheTest {
+
+  private fun newCache(maxBytes: Long) = OffHeapLocalCache<String>(
+    maxBytes, Duration.ofMinutes(1), { it.toByteArray() }, { String(it) }, false, 16
+  )
+
+  @Test
+  fun putAndGet() {
+    val cache = newCache(1024)
+    val total = cache.freePages()
+    cache.put("a", "")
+    cache.put("b", "x".repeat(40))
+    assertEquals("", cache.getIfPresent("a"))
+    assertEquals("x".repeat(40), cache.getIfPresent("b"))
+    assertNull(cache.getIfPresent("c"))
+    assertEquals(total - 1 - 3, cache.freePages())
+  }
+
+  @Test
+  fun pagesReturnedOnReplaceAndInvalidate() {
+    val cache = newCache(1024)
+    val total = cache.freePages()
+    cache.put("a", "x".repeat(40))
+    cache.put("a", "y")
+    assertEquals("y", cache.getIfPresent("a"))
+    assertEquals(total - 1, cache.freePages())
+    cache.invalidate("a")
+    assertNull(cache.getIfPresent("a"))
+    assertEquals(total, cache.freePages())
+  }
+
+  @Test
+  fun evictionKeepsAcceptingWrites() {
+    val cache = newCache(1024)
+    var cached = 0
+    for (i in 0 until 1000) {
+      cache.put("k$i", "value-$i")
+      // 新写入的条目可能被TinyLFU准入策略直接淘汰, 但读取到的值一定正确
+      val value = cache.getIfPresent("k$i")
+      if (value != null) {
+        assertEquals("value-$i", value)
+        cached++
+      }
+    }
+    assertTrue(cached > 0)
+    // 淘汰的条目立即归还页, 始终保留了单个值的最大占用
+    assertTrue(cache.freePages() >= 4)
+  }
+
+  @Test
+  fun oversizedValueDropsStaleEntry() {
+    val cache = newCache(1024)
+    cache.put("a", "old")
+    cache.put("a", "x".repeat(1024))
+    assertNull(cache.getIfPresent("a"))
+  }
+}
@@ -0,0 +1,68 @@
+package com.zzs.framework.core.cache.coroutine
+
+import kotlinx.coroutines.CompletableDeferred
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.time.Duration
+import java.util.concurrent.CopyOnWriteArrayList
+
+/**
+ * @author 宋志宗 on 2026/10/17
+ */
+class RedisCacheBloomFilterTest {
+
+  @Test
+  fun noFalseNegatives() {
+    val filter = BloomFilter(10_000, 0.01)
+    for (i in 0 until 10_000) {
+      filter.put("key:$i")
+    }
+    for (i in 0 until 10_000) {
+      assertTrue(filter.mightContain("key:$i"))
+    }
+    val falsePositives = (0 until 10_000).count { filter.mightContain("absent:$it") }
+    assertTrue("false positives: $falsePositives", falsePositives < 300)
+  }
+
+  @Test
+  fun failOpenBeforeFirstBuild() {
+    val seeded = CompletableDeferred<Unit>()
+    val filter = RedisCacheBloomFilter(
+      "test", 1000, 0.01, Duration.ofHours(1), { seeded.await(); listOf("a") }, null, null
+    )
+    assertFalse(filter.ready)
+    assertTrue(filter.mightContain("b"))
+    seeded.complete(Unit)
+    awaitTrue { filter.ready }
+    assertTrue(filter.mightContain("a"))
+    assertFalse(filter.mightContain("b"))
+  }
+
+  @Test
+  fun rebuildFindsKeysWrittenElsewhere() {
+    val keys = CopyOnWriteArrayList(listOf("a"))
+    val filter = RedisCacheBloomFilter("test", 1000, 0.01, Duration.ofMillis(50), { keys }, null, null)
+    awaitTrue { filter.ready }
+    assertFalse(filter.mightContain("b"))
+    keys.add("b")
+    awaitTrue { filter.mightContain("b") }
+  }
+
+  @Test
+  fun addAll() {
+    val filter = RedisCacheBloomFilter("test", 1000, 0.01, Duration.ofHours(1), { emptyList() }, null, null)
+    awaitTrue { filter.ready }
+    assertFalse(filter.mightContain("a"))
+    filter.addAll(listOf("a"))
+    assertTrue(filter.mightContain("a"))
+  }
+
+  private fun awaitTrue(condition: () -> Boolean) {
+    val deadline = System.currentTimeMillis() + 5000
+    while (!condition.invoke()) {
+      assertTrue("condition not met in time", System.currentTimeMillis() < deadline)
+      Thread.sleep(10)
+    }
+  }
+}
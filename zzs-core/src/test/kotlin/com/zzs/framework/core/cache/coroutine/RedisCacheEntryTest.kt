@@ -0,0 +1,83 @@
+package com.zzs.framework.core.cache.coroutine
+
+import org.junit.Assert.*
+import org.junit.Test
+
+/**
+ * @author 宋志宗 on 2026/10/17
+ */
+class RedisCacheEntryTest {
+
+  @Test
+  fun plainValue() {
+    val raw = "value".toByteArray()
+    val entry = RedisCacheEntry.decode(raw)
+    assertEquals(0, entry.offset)
+    assertEquals(raw.size, entry.length)
+    assertFalse(entry.needsRefresh())
+    assertFalse(entry.isExpired())
+  }
+
+  @Test
+  fun refreshHeader() {
+    val entry = RedisCacheEntry.decode(RedisCacheEntry.encode("value".toByteArray(), 1000))
+    assertEquals("value", value(entry))
+    assertEquals(1000, entry.refreshAt)
+    assertEquals(0, entry.delta)
+    assertEquals(Long.MAX_VALUE, entry.expireAt)
+    assertTrue(entry.needsRefresh(1000))
+    assertFalse(entry.needsRefresh(999))
+  }
+
+  @Test
+  fun fullHeader() {
+    val entry = RedisCacheEntry.decode(RedisCacheEntry.encode("value".toByteArray(), 1000, 50, 2000))
+    assertEquals("value", value(entry))
+    assertEquals(1000, entry.refreshAt)
+    assertEquals(50, entry.delta)
+    assertEquals(2000, entry.expireAt)
+    assertTrue(entry.isExpired(2000))
+    assertFalse(entry.isExpired(1999))
+  }
+
+  @Test
+  fun emptyValueAndMalformedHeader() {
+    val empty = RedisCacheEntry.decode(RedisCacheEntry.encode(ByteArray(0), 1000))
+    assertEquals(0, empty.length)
+    // 头部不完整时视为没有头部的普通值
+    val raw = "::$$::_entry_::1:2::$$::value".toByteArray()
+    val malformed = RedisCacheEntry.decode(raw)
+    assertEquals(0, malformed.offset)
+    assertEquals(Long.MAX_VALUE, malformed.refreshAt)
+  }
+
+  @Test
+  fun nullValue() {
+    assertTrue(RedisCacheEntry.isNullValue(RedisCacheEntry.nullValue()))
+    assertFalse(RedisCacheEntry.isNullValue("value".toByteArray()))
+    assertTrue(RedisCacheEntry.isAbsent(null))
+    assertTrue(RedisCacheEntry.isAbsent(ByteArray(0)))
+  }
+
+  @Test
+  fun needsEarlyRefresh() {
+    val now = 1_000_000L
+    // 没有记录加载耗时或过期时间时不提前刷新
+    assertFalse(RedisCacheEntry(ByteArray(0), 0, Long.MAX_VALUE, 0, now + 10).needsEarlyRefresh(1.0, now))
+    assertFalse(RedisCacheEntry(ByteArray(0), 0, Long.MAX_VALUE, 100).needsEarlyRefresh(1.0, now))
+    // 已经过期时一定刷新
+    assertTrue(RedisCacheEntry(ByteArray(0), 0, Long.MAX_VALUE, 100, now).needsEarlyRefresh(1.0, now))
+    // 距离过期远大于加载耗时时几乎不会刷新, 越接近过期刷新概率越高
+    val far = RedisCacheEntry(ByteArray(0), 0, Long.MAX_VALUE, 10, now + 1_000_000)
+    val near = RedisCacheEntry(ByteArray(0), 0, Long.MAX_VALUE, 1000, now + 100)
+    val farCount = (0 until 10_000).count { far.needsEarlyRefresh(1.0, now) }
+    val nearCount = (0 until 10_000).count { near.needsEarlyRefresh(1.0, now) }
+    assertEquals(0, farCount)
+    assertTrue(nearCount > 8000)
+    // beta越小越倾向于推迟刷新
+    val eager = (0 until 10_000).count { near.needsEarlyRefresh(0.01, now) }
+    assertTrue(eager < nearCount)
+  }
+
+  private fun value(entry: RedisCacheEntry) = String(entry.bytes, entry.offset, entry.length)
+}
@@ -0,0 +1,45 @@
+package com.zzs.framework.core.cache.coroutine
+
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * @author 宋志宗 on 2026/10/17
+ */
+class RedisCacheLoadingAdapterTest {
+
+  /** 所有key都未命中的缓存, 直接调用加载函数 */
+  private class MissingCache : RedisCache<String, String> {
+    override suspend fun getIfPresent(key: String): String? = null
+    override suspend fun getAll(keys: Iterable<String>): Map<String, String> = emptyMap()
+    override suspend fun get(key: String, block: suspend (String) -> String?) = block(key)
+    override suspend fun getAll(keys: Iterable<String>, block: suspend (Collection<String>) -> Map<String, String>) =
+      block(keys.toList())
+
+    override suspend fun put(key: String, v: String) {}
+    override suspend fun putAll(map: Map<String, String>) {}
+    override suspend fun invalidate(key: String) {}
+    override suspend fun invalidateAll(keys: Iterable<String>) {}
+  }
+
+  @Test
+  fun `batch loader loads all misses at once`() = runBlocking {
+    val batches = ArrayList<Collection<String>>()
+    val cache = RedisCacheLoadingAdapter(MissingCache(), { "v$it" }) { keys ->
+      batches.add(keys)
+      keys.filter { it != "x" }.associateWith { "b$it" }
+    }
+    assertEquals(mapOf("a" to "ba", "b" to "bb"), cache.getAll(listOf("a", "b", "x")))
+    assertEquals(listOf(listOf("a", "b", "x")), batches)
+    assertEquals("va", cache.get("a"))
+  }
+
+  @Test
+  fun `without batch loader fall back to single loader`() = runBlocking {
+    val loaded = ArrayList<String>()
+    val cache = RedisCacheLoadingAdapter<String, String>(MissingCache(), { loaded.add(it); if (it == "x") null else "v$it" })
+    assertEquals(mapOf("a" to "va", "b" to "vb"), cache.getAll(listOf("a", "b", "x")))
+    assertEquals(setOf("a", "b", "x"), loaded.toSet())
+  }
+}
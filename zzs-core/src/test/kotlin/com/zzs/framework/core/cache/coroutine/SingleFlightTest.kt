@@ -0,0 +1,79 @@
+package com.zzs.framework.core.cache.coroutine
+
+import kotlinx.coroutines.*
+import org.junit.Assert.*
+import org.junit.Test
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * @author 宋志宗 on 2026/10/17
+ */
+class SingleFlightTest {
+
+  @Test
+  fun coalesceSameKey() = runBlocking {
+    val singleFlight = SingleFlight<Int>()
+    val invocations = AtomicInteger()
+    val gate = CompletableDeferred<Unit>()
+    val results = (0 until 10).map {
+      async(Dispatchers.Default) {
+        singleFlight.execute("k") {
+          invocations.incrementAndGet()
+          gate.await()
+          42
+        }
+      }
+    }
+    while (!singleFlight.isRunning("k")) {
+      delay(1)
+    }
+    delay(50)
+    gate.complete(Unit)
+    assertEquals(List(10) { 42 }, results.awaitAll())
+    assertEquals(1, invocations.get())
+    assertFalse(singleFlight.isRunning("k"))
+  }
+
+  @Test
+  fun differentKeysDoNotWait() = runBlocking {
+    val singleFlight = SingleFlight<String>()
+    val gate = CompletableDeferred<Unit>()
+    val slow = async { singleFlight.execute("slow") { gate.await(); "slow" } }
+    // 不同key不会排在未完成的加载之后, 加载函数中读取其他key也不会死锁
+    val fast = withTimeout(1000) {
+      singleFlight.execute("outer") { singleFlight.execute("inner") { "fast" } }
+    }
+    assertEquals("fast", fast)
+    gate.complete(Unit)
+    assertEquals("slow", slow.await())
+  }
+
+  @Test
+  fun failureIsSharedAndNotCached() = runBlocking {
+    val singleFlight = SingleFlight<Int>()
+    try {
+      singleFlight.execute("k") { throw IllegalStateException("boom") }
+      fail()
+    } catch (e: IllegalStateException) {
+      assertEquals("boom", e.message)
+    }
+    assertEquals(1, singleFlight.execute("k") { 1 })
+  }
+
+  @Test
+  fun waiterTakesOverWhenExecutorCancelled() = runBlocking {
+    val singleFlight = SingleFlight<Int>()
+    val started = CompletableDeferred<Unit>()
+    val executor = launch {
+      singleFlight.execute("k") {
+        started.complete(Unit)
+        awaitCancellation()
+      }
+    }
+    started.await()
+    val waiter = async { singleFlight.execute("k") { 7 } }
+    yield()
+    executor.cancel()
+    assertEquals(7, withTimeout(1000) { waiter.await() })
+  }
+}
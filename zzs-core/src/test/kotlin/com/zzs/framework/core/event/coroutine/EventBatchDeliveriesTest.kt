@@ -0,0 +1,30 @@
+package com.zzs.framework.core.event.coroutine
+
+import kotlinx.coroutines.delay
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import reactor.core.publisher.Flux
+import java.time.Duration
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * @author 宋志宗 on 2026/10/17
+ */
+class EventBatchDeliveriesTest {
+
+  @Test
+  fun `slow handler does not overflow timed batches`() {
+    val handled = AtomicInteger()
+    val batches = AtomicInteger()
+    // 消息持续到达但每批都凑不满, 每次超时只刷出一个不完整的批次
+    val deliveries = Flux.interval(Duration.ofMillis(1)).take(300).onBackpressureBuffer()
+    batchDeliveries(deliveries, 100, Duration.ofMillis(1)) { batch ->
+      if (batches.incrementAndGet() == 1) {
+        // 处理停顿的时间远大于32个等待周期(concatMap的预取数量)
+        delay(300)
+      }
+      handled.addAndGet(batch.size)
+    }.then().block(Duration.ofSeconds(30))
+    assertEquals(300, handled.get())
+  }
+}
@@ -0,0 +1,75 @@
+package com.zzs.framework.core.event.coroutine
+
+import com.rabbitmq.client.AMQP
+import com.rabbitmq.client.Channel
+import com.rabbitmq.client.Delivery
+import com.rabbitmq.client.Envelope
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import reactor.rabbitmq.AcknowledgableDelivery
+import java.lang.reflect.Proxy
+import java.time.Duration
+
+/**
+ * @author 宋志宗 on 2026/10/17
+ */
+class EventBatchSettlementTest {
+
+  /** 记录channel上的确认调用: ack/nack, delivery tag, multiple */
+  private val calls = ArrayList<Triple<String, Long, Boolean>>()
+
+  private val channel = Proxy.newProxyInstance(
+    Channel::class.java.classLoader, arrayOf(Channel::class.java)
+  ) { _, method, args ->
+    when (method.name) {
+      "basicAck" -> calls.add(Triple("ack", args[0] as Long, args[1] as Boolean))
+      "basicNack" -> {
+        assertEquals(true, args[2])
+        calls.add(Triple("nack", args[0] as Long, args[1] as Boolean))
+      }
+    }
+    null
+  } as Channel
+
+  @Test
+  fun allSucceeded() = runBlocking {
+    settleBatch(batch(4), booleanArrayOf(true, true, true, true), Duration.ZERO)
+    assertEquals(listOf(Triple("ack", 4L, true)), calls)
+  }
+
+  @Test
+  fun partialFailure() = runBlocking {
+    // 第3条处理失败且未能转发, 第4条处理失败但已经转发到重试队列
+    settleBatch(batch(5), booleanArrayOf(true, true, false, true, true), Duration.ZERO)
+    assertEquals(
+      listOf(
+        Triple("ack", 2L, true),
+        Triple("nack", 3L, false),
+        Triple("ack", 4L, false),
+        Triple("ack", 5L, false)
+      ), calls
+    )
+    // 每条消息只被确认或拒绝一次
+    assertEquals(1, calls.count { it.third })
+  }
+
+  @Test
+  fun firstFailed() = runBlocking {
+    settleBatch(batch(3), booleanArrayOf(false, true, false), Duration.ZERO)
+    assertEquals(
+      listOf(
+        Triple("nack", 1L, false),
+        Triple("ack", 2L, false),
+        Triple("nack", 3L, false)
+      ), calls
+    )
+  }
+
+  private fun batch(size: Int): List<AcknowledgableDelivery> {
+    return (1..size).map { tag ->
+      val delivery = Delivery(Envelope(tag.toLong(), false, "", ""), AMQP.BasicProperties(), ByteArray(0))
+      AcknowledgableDelivery(delivery, channel) { _, e -> throw e }
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package com.zzs.framework.core.event.coroutine
+
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.*
+import org.junit.Test
+import org.reactivestreams.Publisher
+import reactor.core.publisher.Flux
+import reactor.rabbitmq.OutboundMessage
+import reactor.rabbitmq.OutboundMessageResult
+import reactor.rabbitmq.Sender
+import java.time.Duration
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * @author 宋志宗 on 2026/10/17
+ */
+class EventReroutePublisherTest {
+
+  private class FakeSender(
+    private val sendDelay: Duration = Duration.ZERO,
+    private val ack: (OutboundMessage) -> Boolean = { true }
+  ) : Sender() {
+    val sends = AtomicInteger()
+    val messages = AtomicInteger()
+
+    override fun sendWithPublishConfirms(messages: Publisher<OutboundMessage>): Flux<OutboundMessageResult<OutboundMessage>> {
+      sends.incrementAndGet()
+      return Flux.from(messages)
+        .doOnNext { this.messages.incrementAndGet() }
+        .delaySubscription(sendDelay)
+        .map { OutboundMessageResult(it, ack(it), false) }
+    }
+  }
+
+  private fun message(queue: String) = OutboundMessage("", queue, ByteArray(0))
+
+  @Test
+  fun `coalesce concurrent publishes into fewer sends`() = runBlocking {
+    val sender = FakeSender(Duration.ofMillis(50))
+    val publisher = EventReroutePublisher(sender)
+    try {
+      val results = (1..100).map { i -> async { publisher.publish(message("q$i")) } }.awaitAll()
+      assertTrue(results.all { it })
+      assertEquals(100, sender.messages.get())
+      assertTrue("sends: ${sender.sends.get()}", sender.sends.get() < 100)
+    } finally {
+      publisher.close()
+    }
+  }
+
+  @Test
+  fun `map nack to failure per message`() = runBlocking {
+    val sender = FakeSender { it.routingKey != "dlq" }
+    val publisher = EventReroutePublisher(sender)
+    try {
+      val results = publisher.publish(listOf(message("retry"), message("dlq"), message("retry")))
+      assertEquals(listOf(true, false, true), results)
+    } finally {
+      publisher.close()
+    }
+  }
+
+  @Test
+  fun `send error fails whole batch`() = runBlocking {
+    val sender = object : Sender() {
+      override fun sendWithPublishConfirms(messages: Publisher<OutboundMessage>): Flux<OutboundMessageResult<OutboundMessage>> =
+        Flux.error(IllegalStateException("channel closed"))
+    }
+    val publisher = EventReroutePublisher(sender)
+    try {
+      assertEquals(listOf(false, false), publisher.publish(listOf(message("a"), message("b"))))
+      // 发送异常后发布者仍然可用
+      assertFalse(publisher.publish(message("c")))
+    } finally {
+      publisher.close()
+    }
+  }
+
+  @Test
+  fun `publish after close fails`() = runBlocking {
+    val publisher = EventReroutePublisher(FakeSender())
+    publisher.close()
+    assertFalse(publisher.publish(message("a")))
+  }
+}
@@ -0,0 +1,33 @@
+package com.zzs.framework.core.event.coroutine
+
+import org.junit.Assert.*
+import org.junit.Test
+import java.time.Duration
+
+/**
+ * @author 宋志宗 on 2026/10/17
+ */
+class EventRetryPolicyTest {
+  private val policy = EventRetryPolicy(4, listOf(Duration.ofSeconds(1), Duration.ofSeconds(10)))
+
+  @Test
+  fun `select retry delay by attempts`() {
+    assertEquals(Duration.ofSeconds(1), policy.retryDelay(1))
+    assertEquals(Duration.ofSeconds(10), policy.retryDelay(2))
+    // 超出配置的部分使用最后一个延迟
+    assertEquals(Duration.ofSeconds(10), policy.retryDelay(3))
+  }
+
+  @Test
+  fun `route to dead letter queue when attempts exhausted`() {
+    assertNull(policy.retryDelay(4))
+    assertNull(policy.retryDelay(5))
+    assertNull(EventRetryPolicy(1, listOf(Duration.ofSeconds(1))).retryDelay(1))
+  }
+
+  @Test
+  fun `reject invalid policy`() {
+    assertThrows(IllegalArgumentException::class.java) { EventRetryPolicy(0, listOf(Duration.ofSeconds(1))) }
+    assertThrows(IllegalArgumentException::class.java) { EventRetryPolicy(3, emptyList()) }
+  }
+}
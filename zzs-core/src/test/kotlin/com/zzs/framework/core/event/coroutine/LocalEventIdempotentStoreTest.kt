@@ -0,0 +1,36 @@
+package com.zzs.framework.core.event.coroutine
+
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.*
+import org.junit.Test
+import java.time.Duration
+
+/**
+ * @author 宋志宗 on 2026/10/17
+ */
+class LocalEventIdempotentStoreTest {
+
+  @Test
+  fun `acquire once until released`() = runBlocking {
+    val store = LocalEventIdempotentStore(100, Duration.ofMinutes(1))
+    assertTrue(store.tryAcquire("a"))
+    assertFalse(store.tryAcquire("a"))
+    store.release("a")
+    assertTrue(store.tryAcquire("a"))
+  }
+
+  @Test
+  fun `duplicate keys in batch acquire only once`() = runBlocking {
+    val store = LocalEventIdempotentStore(100, Duration.ofMinutes(1))
+    assertTrue(store.tryAcquire("b"))
+    assertEquals(listOf(true, false, true, false), store.tryAcquireAll(listOf("a", "a", "c", "b")))
+  }
+
+  @Test
+  fun `expired key can be acquired again`() = runBlocking {
+    val store = LocalEventIdempotentStore(100, Duration.ofMillis(50))
+    assertTrue(store.tryAcquire("a"))
+    Thread.sleep(100)
+    assertTrue(store.tryAcquire("a"))
+  }
+}
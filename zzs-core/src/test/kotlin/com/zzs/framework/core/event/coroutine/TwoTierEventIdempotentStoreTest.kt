@@ -0,0 +1,85 @@
+package com.zzs.framework.core.event.coroutine
+
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.*
+import org.junit.Test
+import java.time.Duration
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * @author 宋志宗 on 2026/10/17
+ */
+class TwoTierEventIdempotentStoreTest {
+
+  /** 内存实现的远程存储, 记录调用次数并可以模拟异常 */
+  private class FakeRemoteStore : EventIdempotentStore {
+    val keys: MutableSet<String> = ConcurrentHashMap.newKeySet()
+    var acquireCalls = 0
+    var failure: Exception? = null
+
+    override suspend fun tryAcquire(key: String): Boolean {
+      acquireCalls++
+      failure?.let { throw it }
+      return keys.add(key)
+    }
+
+    override suspend fun tryAcquireAll(keys: List<String>): List<Boolean> {
+      acquireCalls++
+      failure?.let { throw it }
+      return keys.map { this.keys.add(it) }
+    }
+
+    override suspend fun release(key: String) {
+      keys.remove(key)
+    }
+  }
+
+  private val remote = FakeRemoteStore()
+  private val store = newStore()
+
+  private fun newStore() = TwoTierEventIdempotentStore(LocalEventIdempotentStore(100, Duration.ofMinutes(1)), remote)
+
+  @Test
+  fun `acquire writes remote before processing`() = runBlocking {
+    assertTrue(store.tryAcquire("a"))
+    assertTrue("a" in remote.keys)
+    assertEquals(listOf(true, true), store.tryAcquireAll(listOf("b", "c")))
+    assertTrue(remote.keys.containsAll(listOf("b", "c")))
+  }
+
+  @Test
+  fun `locally seen keys skip remote store`() = runBlocking {
+    assertTrue(store.tryAcquire("a"))
+    val calls = remote.acquireCalls
+    assertFalse(store.tryAcquire("a"))
+    assertEquals(listOf(false, false), store.tryAcquireAll(listOf("a", "a")))
+    assertEquals(calls, remote.acquireCalls)
+  }
+
+  @Test
+  fun `redelivery to another node is detected`() = runBlocking {
+    // 节点A处理后未能确认, 消息被重新投递到节点B
+    assertTrue(store.tryAcquire("a"))
+    val other = newStore()
+    assertFalse(other.tryAcquire("a"))
+    assertEquals(listOf(false, true), other.tryAcquireAll(listOf("a", "b")))
+  }
+
+  @Test
+  fun `rollback local key when remote fails`() = runBlocking {
+    remote.failure = IllegalStateException("redis down")
+    assertThrows(IllegalStateException::class.java) { runBlocking { store.tryAcquire("a") } }
+    assertThrows(IllegalStateException::class.java) { runBlocking { store.tryAcquireAll(listOf("b", "c")) } }
+    remote.failure = null
+    assertTrue(store.tryAcquire("a"))
+    assertEquals(listOf(true, true), store.tryAcquireAll(listOf("b", "c")))
+  }
+
+  @Test
+  fun `release clears both tiers`() = runBlocking {
+    assertTrue(store.tryAcquire("a"))
+    store.release("a")
+    assertFalse("a" in remote.keys)
+    assertTrue(store.tryAcquire("a"))
+  }
+}
@@ -0,0 +1,24 @@
+package com.zzs.framework.core.lock
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * @author 宋志宗 on 2026/10/17
+ */
+class RedisLockWaitTest {
+
+  @Test
+  fun `wait until lock expires or deadline`() {
+    assertEquals(500L, RedisLock.waitMillis(500, 10_000, 30_000))
+    assertEquals(200L, RedisLock.waitMillis(500, 200, 30_000))
+    // 锁即将过期时至少等待1毫秒
+    assertEquals(1L, RedisLock.waitMillis(0, 10_000, 30_000))
+  }
+
+  @Test
+  fun `lock without expiry waits for release signal`() {
+    assertEquals(10_000L, RedisLock.waitMillis(RedisLockScripts.HELD_WITHOUT_EXPIRY, 10_000, 30_000))
+    assertEquals(30_000L, RedisLock.waitMillis(RedisLockScripts.HELD_WITHOUT_EXPIRY, Long.MAX_VALUE, 30_000))
+  }
+}